@@ -4,13 +4,27 @@ import app.entities.Actor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class ActorDAO implements BaseDAO<Actor, Integer> {
 
     private final EntityManagerFactory emf;
 
+    private static final NativeUpsert<Actor> UPSERT = new NativeUpsert<>(Actor.class, "actors", "actor_id", "actors_seq",
+            List.of("tmdbId", "actor_name", "actor_age", "source_hash"),
+            List.of("actor_name", "source_hash"),
+            "source_hash",
+            actor -> new Object[]{actor.getTmdbId(), actor.getName(), actor.getAge(), actor.getSourceHash()},
+            IdentityMaps.ACTORS);
+
+    private static final KeysetPager<Actor> PAGER = new KeysetPager<>(Actor.class, "id", Integer.class, Map.of());
+    private static final EntityStreamer<Actor> STREAMER = new EntityStreamer<>(Actor.class);
+
     public ActorDAO(EntityManagerFactory emf) {
         this.emf = emf;
     }
@@ -24,6 +38,15 @@ public class ActorDAO implements BaseDAO<Actor, Integer> {
     }
 
 
+    /**
+     * Lookup by the tmdbId natural id; repeated lookups are served from the second-level cache
+     */
+    public Optional<Actor> findByTmdbId(Integer tmdbId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.unwrap(Session.class).bySimpleNaturalId(Actor.class).loadOptional(tmdbId);
+        }
+    }
+
     @Override
     public List<Actor> findAll() {
         try (EntityManager em = emf.createEntityManager()) {
@@ -32,6 +55,16 @@ public class ActorDAO implements BaseDAO<Actor, Integer> {
         }
     }
 
+    @Override
+    public Page<Actor> findPage(PageRequest request) {
+        return PAGER.findPage(emf, request);
+    }
+
+    @Override
+    public long streamAll(Consumer<? super Actor> consumer) {
+        return STREAMER.forEach(emf, "SELECT a FROM Actor a ORDER BY a.id", null, consumer);
+    }
+
 
     @Override
     public Actor persist(Actor entity) {
@@ -79,4 +112,34 @@ public class ActorDAO implements BaseDAO<Actor, Integer> {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Insert the actor, or update the stored one with the same tmdbId, in a single statement
+     * @return the id of the stored row
+     */
+    public Integer upsertByTmdbId(Actor entity) {
+        return UPSERT.execute(emf, List.of(entity)).ids().get(entity.getTmdbId());
+    }
+
+    /**
+     * Batched upsertByTmdbId: one UPDATE and one INSERT per batch. Rows whose source_hash did not
+     * change are skipped.
+     */
+    public UpsertResult upsertAll(Collection<Actor> entities) {
+        return UPSERT.execute(emf, entities);
+    }
+
+    /**
+     * upsertAll inside the caller's transaction
+     */
+    public UpsertResult upsertAll(EntityManager em, Collection<Actor> entities) {
+        return UPSERT.execute(em, entities);
+    }
+
+    /**
+     * Fill IdentityMaps.ACTORS from the table with one query
+     */
+    public void warmIdentityMap() {
+        UPSERT.warm(emf);
+    }
+}
@@ -2,6 +2,7 @@ package app.DAO;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BaseDAO<T, ID> {
 
@@ -9,6 +10,20 @@ public interface BaseDAO<T, ID> {
 
     List<T> findAll();
 
+    /**
+     * One page of a keyset paginated read, see PageRequest
+     * @throws IllegalArgumentException if the sort key or cursor is not valid for this type
+     */
+    Page<T> findPage(PageRequest request);
+
+    /**
+     * Hand every entity to the consumer in id order, reading through a database cursor in chunks
+     * so memory use stays the same however large the table is. The entities are detached once the
+     * consumer returns; it must not keep them around.
+     * @return the number of entities streamed
+     */
+    long streamAll(Consumer<? super T> consumer);
+
     T persist(T entity);
 
     T update(T entity);
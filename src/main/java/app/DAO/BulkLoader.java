@@ -0,0 +1,297 @@
+package app.DAO;
+
+import app.DTO.ActorDTO;
+import app.DTO.CreditsDTO;
+import app.DTO.DirectorDTO;
+import app.DTO.GenreDTO;
+import app.DTO.MovieDTO;
+import app.config.HibernateConfig;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk loader for cold-start backfills.
+ * Decoded rows are buffered as CSV and streamed with COPY FROM STDIN into unlogged staging
+ * tables in chunks of chunkRows, bypassing the ORM, together with the rows' content hashes. finish() then merges the staging tables
+ * into the real tables with set-based INSERT ... ON CONFLICT / UPDATE statements in one
+ * transaction and drops the staging tables.
+ * Staging rows are keyed by tmdbId; ids are drawn from the entities' sequences.
+ * Methods are synchronized so pipeline sink stages can feed the loader from several threads.
+ */
+public class BulkLoader {
+
+    private static final String[] STAGING_TABLES = {
+            "CREATE UNLOGGED TABLE stage_genres (tmdb_id integer, name text, source_hash bigint)",
+            "CREATE UNLOGGED TABLE stage_movies (tmdb_id integer, title text, release_date date, rating double precision, original_language text, source_hash bigint)",
+            "CREATE UNLOGGED TABLE stage_actors (tmdb_id integer, name text, source_hash bigint)",
+            "CREATE UNLOGGED TABLE stage_directors (tmdb_id integer, name text, job text, source_hash bigint)",
+            "CREATE UNLOGGED TABLE stage_movie_genres (movie_tmdb_id integer, genre_tmdb_id integer)",
+            "CREATE UNLOGGED TABLE stage_movie_actors (movie_tmdb_id integer, actor_tmdb_id integer)",
+            "CREATE UNLOGGED TABLE stage_movie_directors (movie_tmdb_id integer, director_tmdb_id integer)",
+            "CREATE UNLOGGED TABLE stage_movie_credits (movie_tmdb_id integer, credits_hash bigint)"
+    };
+
+    // Set-based merge, in dependency order. DISTINCT ON keeps one staging row per tmdbId.
+    // Stored rows are updated and only new ones inserted: nextval in an INSERT ... ON CONFLICT
+    // would run for every staged row and use up 50 ids for each row that already exists.
+    private static final String[] MERGE_STATEMENTS = {
+            """
+            UPDATE genres t SET genreName = s.name, source_hash = s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_genres ORDER BY tmdb_id) s
+            WHERE t.tmdbId = s.tmdb_id
+            """,
+            """
+            INSERT INTO genres (id, tmdbId, genreName, source_hash)
+            SELECT nextval('genres_seq'), s.tmdb_id, s.name, s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_genres ORDER BY tmdb_id) s
+            WHERE NOT EXISTS (SELECT 1 FROM genres t WHERE t.tmdbId = s.tmdb_id)
+            ON CONFLICT (tmdbId) DO NOTHING
+            """,
+            """
+            UPDATE movies t SET title = s.title, release_date = s.release_date, rating = s.rating,
+                original_language = s.original_language, source_hash = s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_movies ORDER BY tmdb_id) s
+            WHERE t.tmdbId = s.tmdb_id
+            """,
+            """
+            INSERT INTO movies (id, tmdbId, title, release_date, rating, original_language, source_hash)
+            SELECT nextval('movies_seq'), s.tmdb_id, s.title, s.release_date, s.rating, s.original_language,
+                s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_movies ORDER BY tmdb_id) s
+            WHERE NOT EXISTS (SELECT 1 FROM movies t WHERE t.tmdbId = s.tmdb_id)
+            ON CONFLICT (tmdbId) DO NOTHING
+            """,
+            """
+            UPDATE actors t SET actor_name = s.name, source_hash = s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_actors ORDER BY tmdb_id) s
+            WHERE t.tmdbId = s.tmdb_id
+            """,
+            """
+            INSERT INTO actors (actor_id, tmdbId, actor_name, actor_age, source_hash)
+            SELECT nextval('actors_seq'), s.tmdb_id, s.name, 0, s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_actors ORDER BY tmdb_id) s
+            WHERE NOT EXISTS (SELECT 1 FROM actors t WHERE t.tmdbId = s.tmdb_id)
+            ON CONFLICT (tmdbId) DO NOTHING
+            """,
+            """
+            UPDATE director t SET name = s.name, job = s.job, source_hash = s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_directors ORDER BY tmdb_id) s
+            WHERE t.tmdbId = s.tmdb_id
+            """,
+            """
+            INSERT INTO director (id, tmdbId, name, job, source_hash)
+            SELECT nextval('director_seq'), s.tmdb_id, s.name, s.job, s.source_hash
+            FROM (SELECT DISTINCT ON (tmdb_id) * FROM stage_directors ORDER BY tmdb_id) s
+            WHERE NOT EXISTS (SELECT 1 FROM director t WHERE t.tmdbId = s.tmdb_id)
+            ON CONFLICT (tmdbId) DO NOTHING
+            """,
+            """
+            INSERT INTO movies_and_genres (movie_id, genre_id)
+            SELECT DISTINCT m.id, g.id
+            FROM stage_movie_genres s
+            JOIN movies m ON m.tmdbId = s.movie_tmdb_id
+            JOIN genres g ON g.tmdbId = s.genre_tmdb_id
+            WHERE NOT EXISTS (SELECT 1 FROM movies_and_genres x WHERE x.movie_id = m.id AND x.genre_id = g.id)
+            """,
+            """
+            INSERT INTO movies_and_actors (movie_id, actor_id)
+            SELECT DISTINCT m.id, a.actor_id
+            FROM stage_movie_actors s
+            JOIN movies m ON m.tmdbId = s.movie_tmdb_id
+            JOIN actors a ON a.tmdbId = s.actor_tmdb_id
+            WHERE NOT EXISTS (SELECT 1 FROM movies_and_actors x WHERE x.movie_id = m.id AND x.actor_id = a.actor_id)
+            """,
+            """
+            UPDATE movies m SET director_id = d.id
+            FROM (SELECT DISTINCT ON (movie_tmdb_id) * FROM stage_movie_directors ORDER BY movie_tmdb_id) s
+            JOIN director d ON d.tmdbId = s.director_tmdb_id
+            WHERE m.tmdbId = s.movie_tmdb_id
+            """,
+            """
+            UPDATE movies m SET credits_hash = s.credits_hash
+            FROM (SELECT DISTINCT ON (movie_tmdb_id) * FROM stage_movie_credits ORDER BY movie_tmdb_id) s
+            WHERE m.tmdbId = s.movie_tmdb_id
+            """
+    };
+
+    private final EntityManagerFactory emf;
+    private final int chunkRows;
+
+    // staging table -> CSV rows not yet copied
+    private final Map<String, StringBuilder> buffers = new LinkedHashMap<>();
+    private final Map<String, Integer> bufferedRows = new LinkedHashMap<>();
+    private long copiedRows;
+
+    public BulkLoader(EntityManagerFactory emf, int chunkRows) {
+        this.emf = emf;
+        this.chunkRows = Math.max(1, chunkRows);
+    }
+
+    /**
+     * Recreate empty staging tables, discarding what an aborted load left behind
+     */
+    public synchronized void begin() {
+        doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String create : STAGING_TABLES) {
+                    String table = create.split(" ")[3];
+                    statement.execute("DROP TABLE IF EXISTS " + table);
+                    statement.execute(create);
+                }
+            }
+        });
+    }
+
+    public synchronized void addGenres(Collection<GenreDTO> genres) {
+        for (GenreDTO genre : genres) {
+            append("stage_genres", genre.id(), genre.genreName(), genre.sourceHash());
+        }
+    }
+
+    /**
+     * Stage the movies and their movie-genre links
+     */
+    public synchronized void addMovies(Collection<MovieDTO> movies) {
+        for (MovieDTO movie : movies) {
+            append("stage_movies", movie.id(), movie.title(), movie.releaseDate(), movie.rating(),
+                    movie.originalLanguage(), movie.sourceHash());
+            if (movie.genreIds() != null) {
+                for (Integer genreId : movie.genreIds()) {
+                    append("stage_movie_genres", movie.id(), genreId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stage a movie's actors and directors together with the links to the movie and its credits hash
+     */
+    public synchronized void addCredits(int movieTmdbId, List<ActorDTO> actors, List<DirectorDTO> directors) {
+        for (ActorDTO actor : actors) {
+            append("stage_actors", actor.id(), actor.name(), actor.sourceHash());
+            append("stage_movie_actors", movieTmdbId, actor.id());
+        }
+        for (DirectorDTO director : directors) {
+            append("stage_directors", director.id(), director.name(), director.job(), director.sourceHash());
+            append("stage_movie_directors", movieTmdbId, director.id());
+        }
+        append("stage_movie_credits", movieTmdbId, CreditsDTO.hashOf(actors, directors));
+    }
+
+    /**
+     * Copy the remaining rows, merge the staging tables into the real tables and drop them
+     * @return the number of rows copied into staging during the load
+     */
+    public synchronized long finish() {
+        for (String table : List.copyOf(buffers.keySet())) {
+            flush(table);
+        }
+        doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String merge : MERGE_STATEMENTS) {
+                    statement.executeUpdate(merge);
+                }
+                for (String create : STAGING_TABLES) {
+                    statement.execute("DROP TABLE IF EXISTS " + create.split(" ")[3]);
+                }
+            }
+        });
+        // The merge bypassed Hibernate, so cached entities may be stale in every factory
+        HibernateConfig.getSecondLevelCaches().forEach(Cache::evictAll);
+        // The identity maps do not know the merged rows or hashes; cold maps make the upserts probe the database
+        IdentityMaps.clear();
+        return copiedRows;
+    }
+
+    /**
+     * Drop the staging tables and buffered rows without merging anything
+     */
+    public synchronized void abort() {
+        buffers.clear();
+        bufferedRows.clear();
+        doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String create : STAGING_TABLES) {
+                    statement.execute("DROP TABLE IF EXISTS " + create.split(" ")[3]);
+                }
+            }
+        });
+    }
+
+    private void append(String table, Object... values) {
+        StringBuilder buffer = buffers.computeIfAbsent(table, t -> new StringBuilder());
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            appendCsv(buffer, values[i]);
+        }
+        buffer.append('\n');
+
+        int rows = bufferedRows.merge(table, 1, Integer::sum);
+        if (rows >= chunkRows) {
+            flush(table);
+        }
+    }
+
+    // CSV format: an unquoted empty field is NULL, text is always quoted
+    private static void appendCsv(StringBuilder buffer, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            buffer.append(value);
+            return;
+        }
+        buffer.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+    }
+
+    private void flush(String table) {
+        StringBuilder buffer = buffers.get(table);
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
+        String rows = buffer.toString();
+        buffer.setLength(0);
+        bufferedRows.put(table, 0);
+
+        doWork(connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                copiedRows += copyManager.copyIn("COPY " + table + " FROM STDIN WITH (FORMAT csv)", new StringReader(rows));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Runs plain JDBC work on a pooled connection in its own transaction
+    private void doWork(Work work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                em.unwrap(Session.class).doWork(work);
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -4,13 +4,28 @@ import app.entities.Director;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class DirectorDAO implements BaseDAO<Director, Integer> {
 
     private final EntityManagerFactory emf;
 
+    private static final NativeUpsert<Director> UPSERT = new NativeUpsert<>(Director.class, "director", "id", "director_seq",
+            List.of("tmdbId", "name", "job", "source_hash"),
+            List.of("name", "job", "source_hash"),
+            "source_hash",
+            director -> new Object[]{director.getTmdbId(), director.getName(), director.getJob(),
+                    director.getSourceHash()},
+            IdentityMaps.DIRECTORS);
+
+    private static final KeysetPager<Director> PAGER = new KeysetPager<>(Director.class, "id", Integer.class, Map.of());
+    private static final EntityStreamer<Director> STREAMER = new EntityStreamer<>(Director.class);
+
     public DirectorDAO(EntityManagerFactory emf) {
         this.emf = emf;
     }
@@ -23,6 +38,25 @@ public class DirectorDAO implements BaseDAO<Director, Integer> {
         }
     }
 
+    /**
+     * Lookup by the tmdbId natural id; repeated lookups are served from the second-level cache
+     */
+    public Optional<Director> findByTmdbId(Integer tmdbId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.unwrap(Session.class).bySimpleNaturalId(Director.class).loadOptional(tmdbId);
+        }
+    }
+
+    public boolean hasMovies(Integer directorId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return !em.createQuery("SELECT 1 FROM Movie m WHERE m.director.id = :directorId", Integer.class)
+                    .setParameter("directorId", directorId)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
+        }
+    }
+
     @Override
     public List<Director> findAll() {
         try (EntityManager em = emf.createEntityManager()) {
@@ -31,6 +65,16 @@ public class DirectorDAO implements BaseDAO<Director, Integer> {
         }
     }
 
+    @Override
+    public Page<Director> findPage(PageRequest request) {
+        return PAGER.findPage(emf, request);
+    }
+
+    @Override
+    public long streamAll(Consumer<? super Director> consumer) {
+        return STREAMER.forEach(emf, "SELECT d FROM Director d ORDER BY d.id", null, consumer);
+    }
+
     @Override
     public Director persist(Director entity) {
         try (EntityManager em = emf.createEntityManager()) {
@@ -77,4 +121,34 @@ public class DirectorDAO implements BaseDAO<Director, Integer> {
             }
         }
     }
+
+    /**
+     * Insert the director, or update the stored one with the same tmdbId, in a single statement
+     * @return the id of the stored row
+     */
+    public Integer upsertByTmdbId(Director entity) {
+        return UPSERT.execute(emf, List.of(entity)).ids().get(entity.getTmdbId());
+    }
+
+    /**
+     * Batched upsertByTmdbId: one UPDATE and one INSERT per batch. Rows whose source_hash did not
+     * change are skipped.
+     */
+    public UpsertResult upsertAll(Collection<Director> entities) {
+        return UPSERT.execute(emf, entities);
+    }
+
+    /**
+     * upsertAll inside the caller's transaction
+     */
+    public UpsertResult upsertAll(EntityManager em, Collection<Director> entities) {
+        return UPSERT.execute(em, entities);
+    }
+
+    /**
+     * Fill IdentityMaps.DIRECTORS from the table with one query
+     */
+    public void warmIdentityMap() {
+        UPSERT.warm(emf);
+    }
 }
@@ -0,0 +1,93 @@
+package app.DAO;
+
+import app.utils.Utils;
+import jakarta.persistence.AttributeNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reads for the DAOs' streamAll, for jobs that visit every row (exports, re-indexing).
+ * Rows come from a server-side cursor that fetches CHUNK_SIZE rows per round trip; the PostgreSQL
+ * driver only keeps a cursor open inside a transaction, so the read runs in one.
+ * Entities are handed to the consumer a chunk at a time, after which the persistence context is
+ * cleared: heap use depends on the chunk size, not on the table size.
+ * The associations of a fetch plan are loaded once per chunk, one batch query per association,
+ * instead of joining them into every cursor row.
+ */
+final class EntityStreamer<T> {
+
+    static final int CHUNK_SIZE = Utils.getIntPropertyValue("STREAM_CHUNK_SIZE", "config.properties", 500);
+
+    private final Class<T> type;
+
+    EntityStreamer(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Hand every result of the query to the consumer
+     * @param fetchPlan name of an entity graph whose associations the consumer reads, or null
+     * @return the number of entities streamed
+     */
+    long forEach(EntityManagerFactory emf, String jpql, String fetchPlan, Consumer<? super T> consumer) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Session session = em.unwrap(Session.class);
+            // No snapshots for dirty checking, no second-level cache entries for a one-off pass,
+            // and lazy associations of the chunk are loaded together
+            session.setDefaultReadOnly(true);
+            session.setCacheMode(CacheMode.IGNORE);
+            session.setFetchBatchSize(CHUNK_SIZE);
+            List<String> associations = fetchPlan == null ? List.of() : em.getEntityGraph(fetchPlan)
+                    .getAttributeNodes().stream()
+                    .map(AttributeNode::getAttributeName)
+                    .toList();
+
+            em.getTransaction().begin();
+            try (ScrollableResults<T> rows = session.createSelectionQuery(jpql, type)
+                    .setFetchSize(CHUNK_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+                long count = 0;
+                while (rows.next()) {
+                    chunk.add(rows.get());
+                    if (chunk.size() == CHUNK_SIZE) {
+                        count += handChunk(em, associations, chunk, consumer);
+                    }
+                }
+                count += handChunk(em, associations, chunk, consumer);
+                em.getTransaction().commit();
+                return count;
+            } catch (Exception e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static <T> int handChunk(EntityManager em, List<String> associations, List<T> chunk,
+                                     Consumer<? super T> consumer) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        for (String association : associations) {
+            // The first load fetches the association for the whole chunk; the rest find it loaded
+            for (T entity : chunk) {
+                util.load(entity, association);
+            }
+        }
+        chunk.forEach(consumer);
+        int handed = chunk.size();
+        chunk.clear();
+        em.clear();
+        return handed;
+    }
+}
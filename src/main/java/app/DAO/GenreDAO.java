@@ -4,13 +4,27 @@ import app.entities.Genre;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class GenreDAO implements BaseDAO<Genre, Integer> {
 
     private final EntityManagerFactory emf;
 
+    private static final NativeUpsert<Genre> UPSERT = new NativeUpsert<>(Genre.class, "genres", "id", "genres_seq",
+            List.of("tmdbId", "genreName", "source_hash"),
+            List.of("genreName", "source_hash"),
+            "source_hash",
+            genre -> new Object[]{genre.getTmdbId(), genre.getGenreName(), genre.getSourceHash()},
+            IdentityMaps.GENRES);
+
+    private static final KeysetPager<Genre> PAGER = new KeysetPager<>(Genre.class, "id", Integer.class, Map.of());
+    private static final EntityStreamer<Genre> STREAMER = new EntityStreamer<>(Genre.class);
+
     public GenreDAO(EntityManagerFactory emf) {
         this.emf = emf;
     }
@@ -25,10 +39,29 @@ public class GenreDAO implements BaseDAO<Genre, Integer> {
 
     public Optional<Genre> findByTmdbId(Integer tmdbId) {
         try (EntityManager em = emf.createEntityManager()){
-            return em.createQuery("SELECT g FROM Genre g WHERE g.tmdbId = :tmdbId", Genre.class)
-                    .setParameter("tmdbId", tmdbId)
-                    .getResultStream()
-                    .findFirst();
+            return em.unwrap(Session.class).bySimpleNaturalId(Genre.class).loadOptional(tmdbId);
+        }
+    }
+
+    /**
+     * Titles of the genre's movies, without loading the movies
+     */
+    public List<String> findMovieTitles(Integer genreId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT m.title FROM Movie m JOIN m.genres g WHERE g.id = :genreId ORDER BY m.title",
+                            String.class)
+                    .setParameter("genreId", genreId)
+                    .getResultList();
+        }
+    }
+
+    public boolean hasMovies(Integer genreId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return !em.createQuery("SELECT 1 FROM Movie m JOIN m.genres g WHERE g.id = :genreId", Integer.class)
+                    .setParameter("genreId", genreId)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
         }
     }
 
@@ -40,6 +73,16 @@ public class GenreDAO implements BaseDAO<Genre, Integer> {
         }
     }
 
+    @Override
+    public Page<Genre> findPage(PageRequest request) {
+        return PAGER.findPage(emf, request);
+    }
+
+    @Override
+    public long streamAll(Consumer<? super Genre> consumer) {
+        return STREAMER.forEach(emf, "SELECT g FROM Genre g ORDER BY g.id", null, consumer);
+    }
+
     @Override
     public Genre persist(Genre entity) {
         try (EntityManager em = emf.createEntityManager()) {
@@ -105,4 +148,34 @@ public class GenreDAO implements BaseDAO<Genre, Integer> {
             return query.getResultList();
         }
     }
+
+    /**
+     * Insert the genre, or update the stored one with the same tmdbId, in a single statement
+     * @return the id of the stored row
+     */
+    public Integer upsertByTmdbId(Genre entity) {
+        return UPSERT.execute(emf, List.of(entity)).ids().get(entity.getTmdbId());
+    }
+
+    /**
+     * Batched upsertByTmdbId: one UPDATE and one INSERT per batch. Rows whose source_hash did not
+     * change are skipped.
+     */
+    public UpsertResult upsertAll(Collection<Genre> entities) {
+        return UPSERT.execute(emf, entities);
+    }
+
+    /**
+     * upsertAll inside the caller's transaction
+     */
+    public UpsertResult upsertAll(EntityManager em, Collection<Genre> entities) {
+        return UPSERT.execute(em, entities);
+    }
+
+    /**
+     * Fill IdentityMaps.GENRES from the table with one query
+     */
+    public void warmIdentityMap() {
+        UPSERT.warm(emf);
+    }
 }
@@ -0,0 +1,156 @@
+package app.DAO;
+
+import app.DTO.GenreDTO;
+import app.entities.Genre;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.*;
+
+/**
+ * Immutable in-memory snapshot of the genres table (about 20 rows).
+ * Lookups by id, tmdbId and case-insensitive name are O(1) map reads and make no DB calls.
+ * Every genre also owns one bit, so a set of genres fits in a long mask. The snapshot is
+ * loaded on first use and replaced as a whole by reload(), e.g. after the genres were synced.
+ */
+public final class GenreDictionary {
+
+    public record Entry(int id, int tmdbId, String name, int bit) {
+
+        /**
+         * Detached Genre carrying the id, for use in associations of new or merged entities
+         */
+        public Genre toReference() {
+            return Genre.builder().id(id).tmdbId(tmdbId).genreName(name).build();
+        }
+
+        public GenreDTO toDTO() {
+            return new GenreDTO(tmdbId, name);
+        }
+    }
+
+    private static volatile GenreDictionary current;
+
+    private final List<Entry> entries;
+    private final Map<Integer, Entry> byId;
+    private final Map<Integer, Entry> byTmdbId;
+    private final Map<String, Entry> byName;
+
+    private GenreDictionary(List<Genre> genres) {
+        if (genres.size() > Long.SIZE) {
+            throw new IllegalStateException("A genre mask holds at most " + Long.SIZE + " genres, found " + genres.size());
+        }
+        List<Genre> sorted = new ArrayList<>(genres);
+        sorted.sort(Comparator.comparing(Genre::getId));
+
+        List<Entry> list = new ArrayList<>();
+        Map<Integer, Entry> ids = new HashMap<>();
+        Map<Integer, Entry> tmdbIds = new HashMap<>();
+        Map<String, Entry> names = new HashMap<>();
+        for (Genre genre : sorted) {
+            Entry entry = new Entry(genre.getId(), genre.getTmdbId() != null ? genre.getTmdbId() : 0,
+                    genre.getGenreName(), list.size());
+            list.add(entry);
+            ids.put(entry.id(), entry);
+            if (genre.getTmdbId() != null) {
+                tmdbIds.put(entry.tmdbId(), entry);
+            }
+            if (entry.name() != null) {
+                names.putIfAbsent(normalize(entry.name()), entry);
+            }
+        }
+        this.entries = List.copyOf(list);
+        this.byId = Map.copyOf(ids);
+        this.byTmdbId = Map.copyOf(tmdbIds);
+        this.byName = Map.copyOf(names);
+    }
+
+    /**
+     * The current snapshot, loaded with one query on first use
+     */
+    public static GenreDictionary get(EntityManagerFactory emf) {
+        GenreDictionary dictionary = current;
+        if (dictionary == null) {
+            synchronized (GenreDictionary.class) {
+                dictionary = current;
+                if (dictionary == null) {
+                    dictionary = reload(emf);
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Replace the snapshot with the current contents of the genres table
+     */
+    public static GenreDictionary reload(EntityManagerFactory emf) {
+        GenreDictionary dictionary = new GenreDictionary(new GenreDAO(emf).findAll());
+        current = dictionary;
+        return dictionary;
+    }
+
+    public Optional<Entry> byId(int id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Optional<Entry> byTmdbId(int tmdbId) {
+        return Optional.ofNullable(byTmdbId.get(tmdbId));
+    }
+
+    public Optional<Entry> byName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(byName.get(normalize(name)));
+    }
+
+    /**
+     * Genres whose name contains the text, ignoring case
+     */
+    public List<Entry> searchByName(String text) {
+        String needle = normalize(text);
+        return entries.stream()
+                .filter(entry -> entry.name() != null && normalize(entry.name()).contains(needle))
+                .toList();
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Bitmask of the genres with the given ids; unknown ids are ignored
+     */
+    public long maskOf(Collection<Integer> genreIds) {
+        long mask = 0L;
+        if (genreIds != null) {
+            for (Integer genreId : genreIds) {
+                Entry entry = genreId != null ? byId.get(genreId) : null;
+                if (entry != null) {
+                    mask |= 1L << entry.bit();
+                }
+            }
+        }
+        return mask;
+    }
+
+    public List<Entry> entriesOf(long mask) {
+        List<Entry> result = new ArrayList<>(Long.bitCount(mask));
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int bit = Long.numberOfTrailingZeros(rest);
+            if (bit < entries.size()) {
+                result.add(entries.get(bit));
+            }
+        }
+        return result;
+    }
+
+    public Set<Integer> idsOf(long mask) {
+        Set<Integer> ids = new HashSet<>();
+        for (Entry entry : entriesOf(mask)) {
+            ids.add(entry.id());
+        }
+        return ids;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
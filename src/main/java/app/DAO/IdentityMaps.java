@@ -0,0 +1,43 @@
+package app.DAO;
+
+import app.utils.TmdbIdentityMap;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The process-wide tmdbId -> id maps shared by every DAO and service.
+ * The upserts keep them current: rows are added once their transaction commits.
+ */
+public final class IdentityMaps {
+
+    public static final TmdbIdentityMap MOVIES = new TmdbIdentityMap("movies");
+    public static final TmdbIdentityMap ACTORS = new TmdbIdentityMap("actors");
+    public static final TmdbIdentityMap DIRECTORS = new TmdbIdentityMap("directors");
+    public static final TmdbIdentityMap GENRES = new TmdbIdentityMap("genres");
+
+    private IdentityMaps() {
+    }
+
+    /**
+     * Load every stored tmdbId with one query per entity type. Call at job start, before
+     * ingestion workers run; afterwards resolving and change detection need no queries.
+     */
+    public static void warm(EntityManagerFactory emf) {
+        long started = System.currentTimeMillis();
+        new GenreDAO(emf).warmIdentityMap();
+        new MovieDAO(emf).warmIdentityMap();
+        new ActorDAO(emf).warmIdentityMap();
+        new DirectorDAO(emf).warmIdentityMap();
+        System.out.println("Warmed identity maps in " + (System.currentTimeMillis() - started) + " ms: "
+                + GENRES + ", " + MOVIES + ", " + ACTORS + ", " + DIRECTORS);
+    }
+
+    /**
+     * Empty every map after rows were written outside the upserts; they stay cold until warmed again
+     */
+    public static void clear() {
+        GENRES.clear();
+        MOVIES.clear();
+        ACTORS.clear();
+        DIRECTORS.clear();
+    }
+}
@@ -0,0 +1,204 @@
+package app.DAO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination for the DAOs' findPage.
+ * A page is read with "WHERE (sortKey, id) > (last sortKey, last id) ORDER BY sortKey, id LIMIT size + 1",
+ * so it costs the same on page 1 and page 10 000: no OFFSET rows are read and thrown away, and with an
+ * index on (sortKey, id) the database starts right at the cursor. Ties are broken by the id, which makes
+ * the order total and stable while rows are inserted.
+ * Null sort values sort last ascending and first descending, like a btree index stores them.
+ * The cursor is the last row's (sortKey, id) together with the order, Base64url encoded.
+ * A page can select a Projection instead of the entities, e.g. a DTO read model.
+ */
+final class KeysetPager<T> {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Class<T> type;
+    private final String idAttribute;
+    private final Map<String, Class<?>> sortKeys;
+
+    /**
+     * @param sortKeys the attributes a page can be ordered by, with their Java types;
+     *                 the id attribute can always be used
+     */
+    KeysetPager(Class<T> type, String idAttribute, Class<?> idType, Map<String, Class<?>> sortKeys) {
+        this.type = type;
+        this.idAttribute = idAttribute;
+        this.sortKeys = new HashMap<>(sortKeys);
+        this.sortKeys.put(idAttribute, idType);
+    }
+
+    /**
+     * What a page selects instead of the entity: columns over the alias and the joins following
+     * "FROM T alias". With joins the rows are grouped by id, so the columns may aggregate over them.
+     * toItem maps a result row, the columns followed by the sort key and the id, to a page item.
+     */
+    record Projection<R>(String alias, String columns, String joins, Function<Object[], R> toItem) {
+    }
+
+    Page<T> findPage(EntityManagerFactory emf, PageRequest request) {
+        return findPage(emf, request, new Projection<>("e", "e", "", row -> type.cast(row[0])));
+    }
+
+    <R> Page<R> findPage(EntityManagerFactory emf, PageRequest request, Projection<R> projection) {
+        if (!sortKeys.containsKey(request.sort())) {
+            throw new IllegalArgumentException("Cannot sort " + type.getSimpleName() + " by " + request.sort()
+                    + ", use one of " + sortKeys.keySet());
+        }
+        Cursor cursor = request.cursor() != null ? decode(request) : null;
+        boolean byId = request.sort().equals(idAttribute);
+        String sort = projection.alias() + "." + request.sort();
+        String id = projection.alias() + "." + idAttribute;
+
+        String select = "SELECT " + projection.columns() + ", " + sort + ", " + id
+                + " FROM " + type.getSimpleName() + " " + projection.alias()
+                + (projection.joins().isEmpty() ? "" : " " + projection.joins());
+        String groupBy = projection.joins().isEmpty() ? "" : " GROUP BY " + id;
+        String direction = request.descending() ? " DESC" : " ASC";
+        String nulls = request.descending() ? " NULLS FIRST, " : " NULLS LAST, ";
+        String orderBy = " ORDER BY " + (byId ? "" : sort + direction + nulls) + id + direction;
+        List<String> conditions = cursor == null
+                ? List.of("")
+                : seekConditions(sort, id, byId, request.descending(), cursor.value() == null);
+
+        try (EntityManager em = emf.createEntityManager()) {
+            List<Object[]> rows = new ArrayList<>();
+            for (String condition : conditions) {
+                TypedQuery<Object[]> query = em.createQuery(select + condition + groupBy + orderBy, Object[].class)
+                        .setMaxResults(request.size() + 1 - rows.size());
+                if (condition.contains(":lastId")) {
+                    query.setParameter("lastId", cursor.id());
+                }
+                if (condition.contains(":lastValue")) {
+                    query.setParameter("lastValue", cursor.value());
+                }
+                rows.addAll(query.getResultList());
+                if (rows.size() > request.size()) {
+                    break;
+                }
+            }
+
+            List<R> items = new ArrayList<>(Math.min(rows.size(), request.size()));
+            for (int i = 0; i < rows.size() && i < request.size(); i++) {
+                items.add(projection.toItem().apply(rows.get(i)));
+            }
+            String nextCursor = null;
+            if (rows.size() > request.size()) {
+                Object[] last = rows.get(request.size() - 1);
+                nextCursor = encode(request, last[last.length - 2], last[last.length - 1]);
+            }
+            return new Page<>(items, nextCursor);
+        }
+    }
+
+    /**
+     * WHERE clauses selecting the rows after the cursor, each one a single index range.
+     * The rows of a later clause follow all rows of an earlier one, so the page reads them in turn
+     * until it is full; "(value, id) > cursor OR value IS NULL" in one query would make the
+     * database filter the index from its start instead of seeking.
+     */
+    private static List<String> seekConditions(String sort, String id, boolean byId, boolean descending,
+                                               boolean lastValueNull) {
+        String after = descending ? " < " : " > ";
+        if (byId) {
+            return List.of(" WHERE " + id + after + ":lastId");
+        }
+        String remainingNulls = " WHERE " + sort + " IS NULL AND " + id + after + ":lastId";
+        if (descending) {
+            // Nulls come first: the remaining nulls, then every value
+            return lastValueNull
+                    ? List.of(remainingNulls, " WHERE " + sort + " IS NOT NULL")
+                    : List.of(" WHERE (" + sort + ", " + id + ") < (:lastValue, :lastId)");
+        }
+        // Nulls come last: the larger values, then every null
+        return lastValueNull
+                ? List.of(remainingNulls)
+                : List.of(" WHERE (" + sort + ", " + id + ") > (:lastValue, :lastId)", " WHERE " + sort + " IS NULL");
+    }
+
+    record Cursor(Object value, Object id) {
+    }
+
+    String encode(PageRequest request, Object value, Object id) {
+        // A null value is an empty field, a present one is prefixed with '=' so the empty string stays distinct
+        return String.join(".",
+                encodeField(request.sort()),
+                encodeField(request.descending() ? "d" : "a"),
+                encodeField(value != null ? "=" + value : ""),
+                encodeField(id.toString()));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not made by encode for the request's sort order
+     */
+    Cursor decode(PageRequest request) {
+        String[] fields = request.cursor().split("\\.", -1);
+        String sort;
+        boolean descending;
+        String value;
+        String id;
+        try {
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("expected 4 fields");
+            }
+            sort = decodeField(fields[0]);
+            descending = decodeField(fields[1]).equals("d");
+            value = decodeField(fields[2]);
+            id = decodeField(fields[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+        if (!sort.equals(request.sort()) || descending != request.descending()) {
+            throw new IllegalArgumentException("Page cursor belongs to a different sort order");
+        }
+        try {
+            return new Cursor(value.isEmpty() ? null : parse(value.substring(1), sortKeys.get(sort)),
+                    parse(id, sortKeys.get(idAttribute)));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+
+    private static Object parse(String text, Class<?> javaType) {
+        if (javaType == Integer.class) {
+            return Integer.valueOf(text);
+        }
+        if (javaType == Long.class) {
+            return Long.valueOf(text);
+        }
+        if (javaType == Double.class) {
+            return Double.valueOf(text);
+        }
+        if (javaType == LocalDate.class) {
+            return LocalDate.parse(text);
+        }
+        if (javaType == String.class) {
+            return text;
+        }
+        throw new IllegalStateException("Unsupported sort key type " + javaType.getName());
+    }
+
+    private static String encodeField(String field) {
+        return ENCODER.encodeToString(field.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeField(String field) {
+        return new String(DECODER.decode(field), StandardCharsets.UTF_8);
+    }
+}
@@ -1,32 +1,105 @@
 package app.DAO;
 
+import app.DTO.MovieDTO;
 import app.entities.Movie;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
-import java.util.List;
-import java.util.Optional;
+import org.hibernate.Hibernate;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class MovieDAO implements BaseDAO<Movie, Integer> {
 
     private final EntityManagerFactory emf;
 
+    private static final NativeUpsert<Movie> UPSERT = new NativeUpsert<>(Movie.class, "movies", "id", "movies_seq",
+            List.of("tmdbId", "title", "release_date", "rating", "original_language", "source_hash"),
+            List.of("title", "release_date", "rating", "original_language", "source_hash"),
+            "source_hash",
+            movie -> new Object[]{movie.getTmdbId(), movie.getTitle(), movie.getReleaseDate(),
+                    movie.getRating(), movie.getOriginalLanguage(), movie.getSourceHash()},
+            IdentityMaps.MOVIES);
+
+    // Read model for MovieDTO: the movie columns plus its genre ids, aggregated by the database
+    // from the join table. No Movie entity, cast or director is loaded.
+    private static final String MOVIE_DTO_COLUMNS = """
+            m.tmdbId, m.title, m.releaseDate, m.rating, m.originalLanguage,
+            array_agg(g.id) WITHIN GROUP (ORDER BY g.id) FILTER (WHERE g.id IS NOT NULL)""";
+    private static final String MOVIE_DTO_JOINS = "LEFT JOIN m.genres g";
+    private static final String MOVIE_DTO_SELECT = "SELECT " + MOVIE_DTO_COLUMNS + " FROM Movie m " + MOVIE_DTO_JOINS + " ";
+
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+
+    private static final KeysetPager<Movie> PAGER = new KeysetPager<>(Movie.class, "id", Integer.class,
+            Map.of("rating", Double.class, "releaseDate", LocalDate.class));
+    private static final KeysetPager.Projection<MovieDTO> DTO_PROJECTION = new KeysetPager.Projection<>(
+            "m", MOVIE_DTO_COLUMNS, MOVIE_DTO_JOINS, MovieDAO::toDTO);
+    private static final EntityStreamer<Movie> STREAMER = new EntityStreamer<>(Movie.class);
+
     public MovieDAO(EntityManagerFactory emf) {
         this.emf = emf;
     }
 
+    /**
+     * The movie without its associations, see findById(Integer, String)
+     */
     @Override
     public Optional<Movie> findById(Integer id) {
+        return findById(id, Movie.SUMMARY_GRAPH);
+    }
+
+    /**
+     * Find a movie and, in the same query, the associations of a fetch plan
+     * @param fetchPlan one of Movie.SUMMARY_GRAPH, WITH_GENRES_GRAPH or WITH_CREDITS_GRAPH
+     */
+    public Optional<Movie> findById(Integer id, String fetchPlan) {
         try (EntityManager em = emf.createEntityManager()) {
-            Movie movie = em.find(Movie.class, id);
+            Movie movie = em.find(Movie.class, id, Map.of(FETCH_GRAPH, em.getEntityGraph(fetchPlan)));
             return Optional.ofNullable(movie);
         }
     }
 
+    /**
+     * All movies without their associations, see findAll(String)
+     */
     @Override
     public List<Movie> findAll() {
+        return findAll(Movie.SUMMARY_GRAPH);
+    }
+
+    /**
+     * Keyset paginated read, sortable by id, rating or releaseDate
+     */
+    @Override
+    public Page<Movie> findPage(PageRequest request) {
+        return PAGER.findPage(emf, request);
+    }
+
+    /**
+     * Every movie without its associations, see streamAll(String, Consumer)
+     */
+    @Override
+    public long streamAll(Consumer<? super Movie> consumer) {
+        return streamAll(Movie.SUMMARY_GRAPH, consumer);
+    }
+
+    /**
+     * Every movie with the associations of a fetch plan, e.g. Movie.WITH_CREDITS_GRAPH for exports.
+     * The associations are loaded per chunk of movies rather than joined into every row.
+     */
+    public long streamAll(String fetchPlan, Consumer<? super Movie> consumer) {
+        return STREAMER.forEach(emf, "SELECT m FROM Movie m ORDER BY m.id", fetchPlan, consumer);
+    }
+
+    /**
+     * All movies and, in the same query, the associations of a fetch plan
+     */
+    public List<Movie> findAll(String fetchPlan) {
         try (EntityManager em = emf.createEntityManager()) {
             TypedQuery<Movie> query = em.createQuery("SELECT m FROM Movie m", Movie.class);
+            query.setHint(FETCH_GRAPH, em.getEntityGraph(fetchPlan));
             return query.getResultList();
         }
     }
@@ -45,11 +118,15 @@ public class MovieDAO implements BaseDAO<Movie, Integer> {
         }
     }
 
+    /**
+     * Merge the movie; the returned copy has its genres loaded
+     */
     public Movie update(Movie entity) {
         try (EntityManager em = emf.createEntityManager()) {
             em.getTransaction().begin();
             try {
                 Movie updated = em.merge(entity);
+                Hibernate.initialize(updated.getGenres());
                 em.getTransaction().commit();
                 return updated;
             } catch (Exception e) {
@@ -93,4 +170,150 @@ public class MovieDAO implements BaseDAO<Movie, Integer> {
             return query.getResultList();
         }
     }
+
+    public List<Movie> findByTmdbIds(Collection<Integer> tmdbIds) {
+        if (tmdbIds.isEmpty()) {
+            return List.of();
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            TypedQuery<Movie> query = em.createQuery(
+                "SELECT m FROM Movie m WHERE m.tmdbId IN :tmdbIds", Movie.class);
+            query.setParameter("tmdbIds", tmdbIds);
+            return query.getResultList();
+        }
+    }
+
+    // ===========================================
+    // MovieDTO PROJECTIONS
+    // ===========================================
+
+    public Optional<MovieDTO> findDTOById(Integer id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toDTOs(em.createQuery(MOVIE_DTO_SELECT + "WHERE m.id = :id GROUP BY m.id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList()).stream().findFirst();
+        }
+    }
+
+    public List<MovieDTO> findAllDTOs() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toDTOs(em.createQuery(MOVIE_DTO_SELECT + "GROUP BY m.id ORDER BY m.id", Object[].class)
+                    .getResultList());
+        }
+    }
+
+    public List<MovieDTO> findDTOsByTitle(String title) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toDTOs(em.createQuery(MOVIE_DTO_SELECT + "WHERE m.title LIKE :title GROUP BY m.id ORDER BY m.id",
+                            Object[].class)
+                    .setParameter("title", "%" + title + "%")
+                    .getResultList());
+        }
+    }
+
+    public List<MovieDTO> findDTOsByDirectorId(Integer directorId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return toDTOs(em.createQuery(MOVIE_DTO_SELECT + "WHERE m.director.id = :directorId GROUP BY m.id ORDER BY m.id",
+                            Object[].class)
+                    .setParameter("directorId", directorId)
+                    .getResultList());
+        }
+    }
+
+    /**
+     * The limit best (descending) or worst rated movies; unrated movies are left out
+     */
+    public List<MovieDTO> findDTOsByRating(int limit, boolean descending) {
+        String direction = descending ? "DESC" : "ASC";
+        try (EntityManager em = emf.createEntityManager()) {
+            return toDTOs(em.createQuery(MOVIE_DTO_SELECT + "WHERE m.rating IS NOT NULL GROUP BY m.id "
+                            + "ORDER BY m.rating " + direction + ", m.id", Object[].class)
+                    .setMaxResults(limit)
+                    .getResultList());
+        }
+    }
+
+    /**
+     * A keyset page of MovieDTOs, sought and aggregated in one query on the read model
+     */
+    public Page<MovieDTO> findDTOPage(PageRequest request) {
+        return PAGER.findPage(emf, request, DTO_PROJECTION);
+    }
+
+    private static List<MovieDTO> toDTOs(List<Object[]> rows) {
+        List<MovieDTO> dtos = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            dtos.add(toDTO(row));
+        }
+        return dtos;
+    }
+
+    private static MovieDTO toDTO(Object[] row) {
+        Integer[] genreIds = (Integer[]) row[5];
+        return new MovieDTO(
+                (Integer) row[0],
+                (String) row[1],
+                (LocalDate) row[2],
+                row[3] != null ? (Double) row[3] : 0.0,
+                (String) row[4],
+                genreIds != null ? new HashSet<>(Arrays.asList(genreIds)) : new HashSet<>());
+    }
+
+    /**
+     * Insert the movie, or update the stored one with the same tmdbId, in a single statement
+     * @return the id of the stored row
+     */
+    public Integer upsertByTmdbId(Movie entity) {
+        return UPSERT.execute(emf, List.of(entity)).ids().get(entity.getTmdbId());
+    }
+
+    /**
+     * Batched upsertByTmdbId: one UPDATE and one INSERT per batch. Rows whose source_hash did not
+     * change are skipped.
+     */
+    public UpsertResult upsertAll(Collection<Movie> entities) {
+        return UPSERT.execute(emf, entities);
+    }
+
+    /**
+     * upsertAll inside the caller's transaction
+     */
+    public UpsertResult upsertAll(EntityManager em, Collection<Movie> entities) {
+        return UPSERT.execute(em, entities);
+    }
+
+    /**
+     * Link movies to genres by row id, skipping links that already exist
+     */
+    public void addGenres(EntityManager em, Map<Integer, ? extends Collection<Integer>> genreIdsByMovieId) {
+        NativeUpsert.insertLinks(em, "movies_and_genres", "movie_id", "genre_id", genreIdsByMovieId);
+    }
+
+    /**
+     * Link a movie to actors by row id, skipping links that already exist
+     */
+    public void addActors(EntityManager em, Integer movieId, Collection<Integer> actorIds) {
+        NativeUpsert.insertLinks(em, "movies_and_actors", "movie_id", "actor_id", Map.of(movieId, actorIds));
+    }
+
+    public void setCreditsHash(EntityManager em, Integer movieId, long creditsHash) {
+        em.createNativeQuery("UPDATE movies SET credits_hash = :creditsHash WHERE id = :movieId")
+                .setParameter("creditsHash", creditsHash)
+                .setParameter("movieId", movieId)
+                .executeUpdate();
+    }
+
+    public void setDirector(EntityManager em, Integer movieId, Integer directorId) {
+        em.createNativeQuery("UPDATE movies SET director_id = :directorId WHERE id = :movieId")
+                .setParameter("directorId", directorId)
+                .setParameter("movieId", movieId)
+                .executeUpdate();
+    }
+
+    /**
+     * Fill IdentityMaps.MOVIES from the table with one query
+     */
+    public void warmIdentityMap() {
+        UPSERT.warm(emf);
+    }
 }
@@ -0,0 +1,413 @@
+package app.DAO;
+
+import app.config.HibernateConfig;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import app.utils.TmdbIdentityMap;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Batched upsert for an entity table with a unique tmdbId column.
+ * Rows already in the table are written with one UPDATE ... FROM (VALUES ...) statement, new
+ * rows with one INSERT ... ON CONFLICT (tmdbId) DO NOTHING statement, both RETURNING the ids
+ * (split at MAX_ROWS_PER_STATEMENT), so a batch costs two round trips. Only new rows draw an id
+ * from the sequence: nextval runs before the conflict check, and with ids allocated 50 at a time
+ * updating through the insert would use up the sequence on every re-sync.
+ * Which rows exist comes from the table's TmdbIdentityMap once it is warm, otherwise from one
+ * query per batch. A row another writer inserted in between is updated after all, and a row that
+ * disappeared in between is inserted, so concurrent writers cannot fail with a duplicate key.
+ * Rows are deduplicated and sorted by tmdbId first: one statement may not touch a row twice,
+ * and a fixed lock order keeps parallel writers from deadlocking.
+ * With a hash column, rows whose hash is unchanged are not written at all.
+ * Ids and hashes are published to the identity map when the transaction commits, so a
+ * rolled back batch never leaves ids behind that do not exist; written rows are evicted from
+ * the second-level cache at the same point.
+ * Statements run as plain JDBC on the entity manager's connection, inside its transaction,
+ * and bypass the persistence context.
+ * @param <T> The entity type
+ */
+final class NativeUpsert<T> {
+
+    // PostgreSQL allows at most 65535 bind parameters per statement
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final Class<T> type;
+    private final String table;
+    private final String idColumn;
+    private final String sequence;
+    private final List<String> columns;
+    private final List<String> updateColumns;
+    private final String hashColumn;
+    private final int hashIndex;
+    private final Function<T, Object[]> values;
+    private final TmdbIdentityMap identityMap;
+
+    // SQL types of columns, looked up on first use so the VALUES of an UPDATE can be cast to them
+    private volatile List<String> columnTypes;
+
+    /**
+     * @param columns the inserted columns, the first one must be tmdbId
+     * @param updateColumns the columns overwritten when the tmdbId already exists
+     * @param hashColumn one of columns holding the row's ContentHash, or null to always write
+     * @param values the column values of an entity, in the order of columns
+     * @param identityMap the table's shared tmdbId -> id map
+     */
+    NativeUpsert(Class<T> type, String table, String idColumn, String sequence, List<String> columns,
+                 List<String> updateColumns, String hashColumn, Function<T, Object[]> values,
+                 TmdbIdentityMap identityMap) {
+        this.type = type;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.sequence = sequence;
+        this.columns = columns;
+        this.updateColumns = updateColumns;
+        this.hashColumn = hashColumn;
+        this.hashIndex = hashColumn != null ? columns.indexOf(hashColumn) : -1;
+        this.values = values;
+        this.identityMap = identityMap;
+    }
+
+    /**
+     * Upsert in a transaction of its own
+     */
+    UpsertResult execute(EntityManagerFactory emf, Collection<T> entities) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                UpsertResult result = execute(em, entities);
+                em.getTransaction().commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Upsert within the caller's transaction
+     */
+    UpsertResult execute(EntityManager em, Collection<T> entities) {
+        TreeMap<Integer, Object[]> rows = new TreeMap<>();
+        for (T entity : entities) {
+            Object[] row = values.apply(entity);
+            if (row[0] == null) {
+                throw new IllegalArgumentException("Cannot upsert into " + table + " without a tmdbId");
+            }
+            rows.put((Integer) row[0], row);
+        }
+
+        Map<Integer, Integer> ids = new HashMap<>();
+        Map<Integer, Long> loadedHashes = new HashMap<>();
+        Map<Integer, Integer> existingIds = new HashMap<>();
+        if (identityMap.isWarm()) {
+            rows.values().removeIf(row -> {
+                int tmdbId = (Integer) row[0];
+                int id = identityMap.getId(tmdbId);
+                if (id == TmdbIdentityMap.MISSING) {
+                    return false;
+                }
+                if (hashColumn != null && identityMap.isUnchanged(tmdbId, hashOf(row))) {
+                    ids.put(tmdbId, id);
+                    return true;
+                }
+                existingIds.put(tmdbId, id);
+                return false;
+            });
+        } else {
+            loadExisting(em, rows, existingIds, ids, loadedHashes);
+        }
+        Set<Integer> written = new HashSet<>(rows.keySet());
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (Object[] row : rows.values()) {
+            (existingIds.containsKey((Integer) row[0]) ? updates : inserts).add(row);
+        }
+
+        // Deleted in between: insert after all
+        List<Object[]> vanished = update(em, updates, ids);
+        inserts.addAll(vanished);
+        inserts.sort(Comparator.comparing(row -> (Integer) row[0]));
+        // Inserted by another writer in between: update after all
+        List<Object[]> raced = insert(em, inserts, ids);
+        if (!update(em, raced, ids).isEmpty()) {
+            throw new IllegalStateException("Rows of " + table + " kept changing while they were upserted");
+        }
+        Map<Integer, Long> publishedHashes = new HashMap<>(loadedHashes);
+        for (Object[] row : rows.values()) {
+            publishedHashes.put((Integer) row[0], hashOf(row));
+        }
+        Set<Integer> writtenIds = new HashSet<>();
+        for (Integer tmdbId : written) {
+            writtenIds.add(ids.get(tmdbId));
+        }
+        publishOnCommit(em, ids, publishedHashes, writtenIds);
+        return new UpsertResult(ids, written);
+    }
+
+    /**
+     * Load every stored tmdbId, id and hash into the identity map with one query and mark it warm
+     */
+    void warm(EntityManagerFactory emf) {
+        String sql = "SELECT tmdbId, " + idColumn + ", " + (hashColumn != null ? hashColumn : "NULL")
+                + " FROM " + table + " WHERE tmdbId IS NOT NULL";
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                em.unwrap(Session.class).doWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setFetchSize(10_000);  // stream the rows instead of buffering them all
+                        try (ResultSet result = statement.executeQuery()) {
+                            while (result.next()) {
+                                long hash = result.getLong(3);
+                                identityMap.put(result.getInt(1), result.getInt(2),
+                                        result.wasNull() ? TmdbIdentityMap.NO_HASH : hash);
+                            }
+                        }
+                    }
+                });
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+        identityMap.setWarm(true);
+    }
+
+    // The written rows are also evicted from the second-level caches, which the plain JDBC writes bypass
+    private void publishOnCommit(EntityManager em, Map<Integer, Integer> ids, Map<Integer, Long> hashes,
+                                 Set<Integer> writtenIds) {
+        Runnable publish = () -> {
+            ids.forEach((tmdbId, id) ->
+                    identityMap.put(tmdbId, id, hashes.getOrDefault(tmdbId, TmdbIdentityMap.NO_HASH)));
+            for (Cache cache : HibernateConfig.getSecondLevelCaches()) {
+                writtenIds.forEach(id -> cache.evict(type, id));
+            }
+        };
+        if (!em.getTransaction().isActive()) {
+            publish.run();
+            return;
+        }
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    publish.run();
+                }
+            }
+        });
+    }
+
+    private long hashOf(Object[] row) {
+        Object hash = hashIndex >= 0 ? row[hashIndex] : null;
+        return hash != null ? (Long) hash : TmdbIdentityMap.NO_HASH;
+    }
+
+    /**
+     * Record the ids of the rows that are already stored in existingIds. With a hash column,
+     * rows whose stored hash matches are removed from rows instead, recording their ids and hashes.
+     */
+    private void loadExisting(EntityManager em, TreeMap<Integer, Object[]> rows, Map<Integer, Integer> existingIds,
+                              Map<Integer, Integer> ids, Map<Integer, Long> loadedHashes) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT tmdbId, " + idColumn + ", " + (hashColumn != null ? hashColumn : "NULL")
+                + " FROM " + table + " WHERE tmdbId = ANY (?)";
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("integer", rows.keySet().toArray()));
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        int tmdbId = result.getInt(1);
+                        int id = result.getInt(2);
+                        long storedHash = result.getLong(3);
+                        boolean hasHash = !result.wasNull();
+                        if (hashColumn != null && hasHash && Objects.equals(rows.get(tmdbId)[hashIndex], storedHash)) {
+                            rows.remove(tmdbId);
+                            ids.put(tmdbId, id);
+                            loadedHashes.put(tmdbId, storedHash);
+                        } else {
+                            existingIds.put(tmdbId, id);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * UPDATE the stored rows, recording their ids
+     * @return the rows that were not found
+     */
+    private List<Object[]> update(EntityManager em, List<Object[]> rows, Map<Integer, Integer> ids) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> updateIndexes = new ArrayList<>();
+        updateIndexes.add(0);
+        updateColumns.forEach(column -> updateIndexes.add(columns.indexOf(column)));
+        List<String> types = columnTypes(em);
+        return write(em, rows, ids, count -> updateSql(count, updateIndexes, types), updateIndexes);
+    }
+
+    /**
+     * INSERT the rows with fresh ids, skipping tmdbIds that are stored by now, recording their ids
+     * @return the rows that were stored by another writer in the meantime
+     */
+    private List<Object[]> insert(EntityManager em, List<Object[]> rows, Map<Integer, Integer> ids) {
+        List<Integer> allIndexes = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            allIndexes.add(i);
+        }
+        return write(em, rows, ids, this::insertSql, allIndexes);
+    }
+
+    /**
+     * Run a RETURNING tmdbId, id statement per chunk of rows, binding the given columns of every row
+     * @return the rows the statements did not return
+     */
+    private List<Object[]> write(EntityManager em, List<Object[]> rows, Map<Integer, Integer> ids,
+                                 IntFunction<String> sqlForRows, List<Integer> boundIndexes) {
+        List<Object[]> missing = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT));
+            Map<Integer, Integer> chunkIds = em.unwrap(Session.class).doReturningWork(connection -> {
+                Map<Integer, Integer> returned = new HashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement(sqlForRows.apply(chunk.size()))) {
+                    int index = 1;
+                    for (Object[] row : chunk) {
+                        for (int column : boundIndexes) {
+                            bind(statement, index++, row[column]);
+                        }
+                    }
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            returned.put(result.getInt(1), result.getInt(2));
+                        }
+                    }
+                }
+                return returned;
+            });
+            ids.putAll(chunkIds);
+            for (Object[] row : chunk) {
+                if (!chunkIds.containsKey((Integer) row[0])) {
+                    missing.add(row);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Insert (left, right) rows into a join table, skipping pairs that are already there
+     */
+    static void insertLinks(EntityManager em, String joinTable, String leftColumn, String rightColumn,
+                            Map<Integer, ? extends Collection<Integer>> links) {
+        List<int[]> pairs = new ArrayList<>();
+        links.forEach((left, rights) -> rights.stream()
+                .distinct()
+                .forEach(right -> pairs.add(new int[]{left, right})));
+
+        for (int from = 0; from < pairs.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<int[]> chunk = pairs.subList(from, Math.min(pairs.size(), from + MAX_ROWS_PER_STATEMENT));
+            String sql = "INSERT INTO " + joinTable + " (" + leftColumn + ", " + rightColumn + ") "
+                    + "SELECT v.l, v.r FROM (VALUES " + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"))
+                    + ") v(l, r) WHERE NOT EXISTS (SELECT 1 FROM " + joinTable + " x WHERE x." + leftColumn
+                    + " = v.l AND x." + rightColumn + " = v.r) ON CONFLICT DO NOTHING";
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    int index = 1;
+                    for (int[] pair : chunk) {
+                        statement.setInt(index++, pair[0]);
+                        statement.setInt(index++, pair[1]);
+                    }
+                    statement.executeUpdate();
+                }
+            });
+        }
+    }
+
+    private String insertSql(int rowCount) {
+        String placeholders = "(nextval('" + sequence + "'), "
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        return "INSERT INTO " + table + " (" + idColumn + ", " + String.join(", ", columns) + ") VALUES "
+                + String.join(", ", Collections.nCopies(rowCount, placeholders))
+                + " ON CONFLICT (tmdbId) DO NOTHING RETURNING tmdbId, " + idColumn;
+    }
+
+    private String updateSql(int rowCount, List<Integer> valueIndexes, List<String> types) {
+        // Parameters in a VALUES list are typed as text unless they are cast
+        String placeholders = "(" + valueIndexes.stream()
+                .map(index -> "?::" + types.get(index))
+                .collect(Collectors.joining(", ")) + ")";
+        String valueColumns = valueIndexes.stream().map(columns::get).collect(Collectors.joining(", "));
+        // Without update columns the row is only touched, so RETURNING still yields its id
+        String assignments = updateColumns.isEmpty()
+                ? "tmdbId = v.tmdbId"
+                : updateColumns.stream().map(column -> column + " = v." + column).collect(Collectors.joining(", "));
+        return "UPDATE " + table + " t SET " + assignments
+                + " FROM (VALUES " + String.join(", ", Collections.nCopies(rowCount, placeholders)) + ") v("
+                + valueColumns + ") WHERE t.tmdbId = v.tmdbId RETURNING t.tmdbId, t." + idColumn;
+    }
+
+    private List<String> columnTypes(EntityManager em) {
+        List<String> types = columnTypes;
+        if (types == null) {
+            types = loadColumnTypes(em);
+            columnTypes = types;
+        }
+        return types;
+    }
+
+    private List<String> loadColumnTypes(EntityManager em) {
+        String sql = "SELECT attname, format_type(atttypid, atttypmod) FROM pg_attribute "
+                + "WHERE attrelid = ?::regclass AND attnum > 0 AND NOT attisdropped";
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            Map<String, String> byName = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, table);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        byName.put(result.getString(1).toLowerCase(Locale.ROOT), result.getString(2));
+                    }
+                }
+            }
+            return columns.stream()
+                    .map(column -> Objects.requireNonNull(byName.get(column.toLowerCase(Locale.ROOT)),
+                            "No column " + column + " in " + table))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            // The server infers the type from the target column
+            statement.setNull(index, Types.NULL);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package app.DAO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset paginated read
+ * @param items the items of this page, in order
+ * @param nextCursor where the next page starts, or null if this is the last page
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> Page<R> map(Function<? super T, ? extends R> mapper) {
+        return new Page<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,35 @@
+package app.DAO;
+
+/**
+ * One page of a keyset (seek) paginated read.
+ * The first page has no cursor; every following page passes the nextCursor of the page before.
+ * A cursor remembers its sort key and direction, so it cannot be reused with a different order.
+ * @param sort the attribute to order by, e.g. "id", "rating" or "releaseDate"; ties are broken by id
+ * @param descending whether to order from the highest value (nulls come first then)
+ * @param size the number of items per page, 1 to MAX_SIZE
+ * @param cursor the opaque nextCursor of the previous page, or null for the first page
+ */
+public record PageRequest(String sort, boolean descending, int size, String cursor) {
+
+    public static final int MAX_SIZE = 500;
+
+    public PageRequest {
+        if (sort == null || sort.isBlank()) {
+            throw new IllegalArgumentException("Sort key cannot be empty");
+        }
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE + ": " + size);
+        }
+    }
+
+    public static PageRequest first(String sort, boolean descending, int size) {
+        return new PageRequest(sort, descending, size, null);
+    }
+
+    /**
+     * The same order and size, continuing after cursor
+     */
+    public PageRequest after(String cursor) {
+        return new PageRequest(sort, descending, size, cursor);
+    }
+}
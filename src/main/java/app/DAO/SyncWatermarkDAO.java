@@ -0,0 +1,98 @@
+package app.DAO;
+
+import app.entities.SyncWatermark;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public class SyncWatermarkDAO implements BaseDAO<SyncWatermark, String> {
+
+    private final EntityManagerFactory emf;
+
+    private static final KeysetPager<SyncWatermark> PAGER = new KeysetPager<>(SyncWatermark.class, "id", String.class, Map.of());
+    private static final EntityStreamer<SyncWatermark> STREAMER = new EntityStreamer<>(SyncWatermark.class);
+
+    public SyncWatermarkDAO(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    @Override
+    public Optional<SyncWatermark> findById(String id) {
+        try (EntityManager em = emf.createEntityManager()) {
+            SyncWatermark watermark = em.find(SyncWatermark.class, id);
+            return Optional.ofNullable(watermark);
+        }
+    }
+
+    @Override
+    public List<SyncWatermark> findAll() {
+        try (EntityManager em = emf.createEntityManager()) {
+            TypedQuery<SyncWatermark> query = em.createQuery("SELECT w FROM SyncWatermark w", SyncWatermark.class);
+            return query.getResultList();
+        }
+    }
+
+    @Override
+    public Page<SyncWatermark> findPage(PageRequest request) {
+        return PAGER.findPage(emf, request);
+    }
+
+    @Override
+    public long streamAll(Consumer<? super SyncWatermark> consumer) {
+        return STREAMER.forEach(emf, "SELECT w FROM SyncWatermark w ORDER BY w.id", null, consumer);
+    }
+
+    @Override
+    public SyncWatermark persist(SyncWatermark entity) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                em.persist(entity);
+                em.getTransaction().commit();
+                return entity;
+            } catch (Exception e) {
+                em.getTransaction().rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Merges the watermark, inserting it if the job has no row yet
+     */
+    @Override
+    public SyncWatermark update(SyncWatermark entity) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                SyncWatermark updated = em.merge(entity);
+                em.getTransaction().commit();
+                return updated;
+            } catch (Exception e) {
+                em.getTransaction().rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void delete(SyncWatermark entity) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                SyncWatermark managedWatermark = em.find(SyncWatermark.class, entity.getId());
+                if (managedWatermark != null) {
+                    em.remove(managedWatermark);
+                }
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                em.getTransaction().rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package app.DAO;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of a batched upsert
+ * @param ids the row id for every tmdbId in the batch
+ * @param writtenTmdbIds the tmdbIds that were inserted or updated; the others were unchanged
+ */
+public record UpsertResult(Map<Integer, Integer> ids, Set<Integer> writtenTmdbIds) {
+
+    public int changed() {
+        return writtenTmdbIds.size();
+    }
+
+    public int unchanged() {
+        return ids.size() - writtenTmdbIds.size();
+    }
+
+    public boolean isWritten(Integer tmdbId) {
+        return writtenTmdbIds.contains(tmdbId);
+    }
+}
@@ -1,5 +1,6 @@
 package app.DTO;
 
+import app.utils.ContentHash;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -27,4 +28,11 @@ public record ActorDTO(
     public Integer getId() {
         return id;
     }
+
+    /**
+     * ContentHash of the fields an actor row is written from, stored as its source_hash
+     */
+    public long sourceHash() {
+        return ContentHash.of(name);
+    }
 }
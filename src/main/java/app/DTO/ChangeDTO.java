@@ -0,0 +1,17 @@
+package app.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/*
+Api reference: https://developer.themoviedb.org/reference/changes-movie-list
+ */
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChangeDTO(
+        @JsonProperty("id")
+        Integer id,
+
+        @JsonProperty("adult")
+        Boolean adult
+) { }
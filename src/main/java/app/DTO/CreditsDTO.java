@@ -1,8 +1,11 @@
 package app.DTO;
 
+import app.utils.ContentHash;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record CreditsDTO(
@@ -14,4 +17,21 @@ public record CreditsDTO(
 
         @JsonProperty("crew")
         List<DirectorDTO> crew
-) {}
+) {
+
+    /**
+     * ContentHash of a movie's resolved cast and directors, stored as its credits_hash.
+     * Independent of the order TMDB lists them in.
+     */
+    public static long hashOf(List<ActorDTO> actors, List<DirectorDTO> directors) {
+        return ContentHash.of(
+                actors.stream()
+                        .sorted(Comparator.comparing(ActorDTO::id))
+                        .map(actorDTO -> actorDTO.id() + ":" + actorDTO.name())
+                        .collect(Collectors.toList()),
+                directors.stream()
+                        .sorted(Comparator.comparing(DirectorDTO::id))
+                        .map(directorDTO -> directorDTO.id() + ":" + directorDTO.name() + ":" + directorDTO.job())
+                        .collect(Collectors.toList()));
+    }
+}
@@ -1,5 +1,6 @@
 package app.DTO;
 
+import app.utils.ContentHash;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -24,4 +25,11 @@ public record DirectorDTO(
     public Integer getId() {
         return id;
     }
+
+    /**
+     * ContentHash of the fields a director row is written from, stored as its source_hash
+     */
+    public long sourceHash() {
+        return ContentHash.of(name, job);
+    }
 }
@@ -1,5 +1,6 @@
 package app.DTO;
 
+import app.utils.ContentHash;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /*
@@ -18,4 +19,11 @@ public record GenreDTO(
     public Integer getId() {
         return id;
     }
+
+    /**
+     * ContentHash of the fields a genre row is written from, stored as its source_hash
+     */
+    public long sourceHash() {
+        return ContentHash.of(genreName);
+    }
 }
\ No newline at end of file
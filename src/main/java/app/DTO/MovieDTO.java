@@ -1,5 +1,6 @@
 package app.DTO;
 
+import app.utils.ContentHash;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -29,4 +30,11 @@ public record MovieDTO(
     public Integer getId() {
         return id;
     }
+
+    /**
+     * ContentHash of the fields a movie row is written from, stored as its source_hash
+     */
+    public long sourceHash() {
+        return ContentHash.of(title, releaseDate, rating, originalLanguage, ContentHash.sorted(genreIds));
+    }
 }
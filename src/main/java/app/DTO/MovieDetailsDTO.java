@@ -0,0 +1,48 @@
+package app.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+Api reference: https://developer.themoviedb.org/reference/movie-details
+ */
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record MovieDetailsDTO(
+        @JsonProperty("id")
+        Integer id,
+
+        @JsonProperty("title")
+        String title,
+
+        @JsonProperty("release_date")
+        LocalDate releaseDate,
+
+        @JsonProperty("vote_average")
+        double rating,
+
+        @JsonProperty("original_language")
+        String originalLanguage,
+
+        @JsonProperty("genres")
+        List<GenreDTO> genres,
+
+        // Only present when requested with append_to_response=credits
+        @JsonProperty("credits")
+        CreditsDTO credits
+) {
+    /**
+     * The details endpoint returns genre objects where discover returns genre ids
+     */
+    public MovieDTO toMovieDTO() {
+        Set<Integer> genreIds = genres == null ? Set.of() : genres.stream()
+                .map(GenreDTO::id)
+                .collect(Collectors.toSet());
+        return new MovieDTO(id, title, releaseDate, rating, originalLanguage, genreIds);
+    }
+}
@@ -4,34 +4,59 @@ import app.config.*;
 import app.entities.*;
 import app.DTO.*;
 import app.services.*;
+import app.utils.Utils;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
 public class Main {
 
     public static void main(String[] args) {
-        // Get EntityManagerFactory
+        if (args.length > 0 && args[0].equalsIgnoreCase("sync")) {
+            runIncrementalSync();
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("backfill")) {
+            runBackfill();
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("bulkload")) {
+            runBulkLoad();
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("export")) {
+            runExport(args.length > 1 ? args[1] : "movies.jsonl");
+            return;
+        }
+
+        // Get EntityManagerFactory; ingestion runs on a connection pool of its own
         var emf = HibernateConfig.getEntityManagerFactory();
+        var ingestEmf = HibernateConfig.getIngestEntityManagerFactory();
 
         try {
             // Create service instances
             MovieService movieService = new MovieService(emf);
+            MovieService ingestMovieService = new MovieService(ingestEmf);
             ActorService actorService = new ActorService(emf);
-            GenreService genreService = new GenreService(emf);
+
+            // The schema was just recreated, so progress from earlier runs no longer applies
+            ingestMovieService.resetCheckpoints();
+            IdentityMaps.warm(ingestEmf);
 
             // Fetch initial data
             System.out.println("\n=== Fetching Initial Data ===");
             System.out.println("Fetching genres...");
-            genreService.fetchAllGenres();
+            new GenreService(ingestEmf).fetchAllGenres();
             
             System.out.println("Fetching Danish movies...");
-            movieService.fetchDanishMovies();
+            ingestMovieService.fetchDanishMovies();
             
             System.out.println("Fetching cast information...");
-            movieService.fetchMovieCast();
+            ingestMovieService.fetchMovieCast();
             
             System.out.println("Data fetch completed!");
+            System.out.println("TMDB request metrics: " + AbstractService.getRequestMetrics());
 
             // Test Movie Service Operations
             System.out.println("\n=== Testing MovieService Operations ===");
@@ -90,12 +115,127 @@ public class Main {
 
             Actor convertedActor = actorService.convertToEntity(test);
             System.out.println("Converted Actor: " + convertedActor.getName());
+            System.out.println(HibernateConfig.getCacheStatistics(emf));
+            System.out.println(HibernateConfig.getPoolMetrics());
 
         } catch (Exception e) {
             System.err.println("Error during execution: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            ingestEmf.close();
+            emf.close();
+        }
+    }
+
+    /**
+     * Full import into the existing schema. If it is interrupted, running it again resumes
+     * from the checkpoint journals instead of starting over.
+     */
+    private static void runBackfill() {
+        HibernateConfig.setSchemaAction("update");
+        var emf = HibernateConfig.getIngestEntityManagerFactory();
+
+        try {
+            IdentityMaps.warm(emf);
+            MovieService movieService = new MovieService(emf);
+            new GenreService(emf).fetchAllGenres();
+            boolean moviesStored = movieService.fetchDanishMovies();
+            boolean castStored = movieService.fetchMovieCast();
+            System.out.println(moviesStored && castStored
+                    ? "Backfill completed!"
+                    : "Backfill incomplete, run it again to resume");
+            System.out.println("TMDB request metrics: " + AbstractService.getRequestMetrics());
+            System.out.println(HibernateConfig.getCacheStatistics(emf));
+            System.out.println(HibernateConfig.getPoolMetrics());
+        } catch (Exception e) {
+            System.err.println("Error during backfill: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            emf.close();
+            HibernateConfig.getEntityManagerFactory().close();
+        }
+    }
+
+    /**
+     * Initial catalog load: rows are COPY'd into staging tables and merged with set-based SQL
+     * instead of going through the ORM one entity at a time
+     */
+    private static void runBulkLoad() {
+        HibernateConfig.setSchemaAction("update");
+        var emf = HibernateConfig.getIngestEntityManagerFactory();
+
+        try {
+            long started = System.currentTimeMillis();
+            BulkLoader loader = new BulkLoader(emf,
+                    Utils.getIntPropertyValue("BULK_COPY_CHUNK_ROWS", "config.properties", 10000));
+            loader.begin();
+            List<GenreDTO> genres = new GenreService(emf).fetchGenreList();
+            loader.addGenres(genres);
+            boolean staged = !genres.isEmpty() && new MovieService(emf).bulkLoadDanishMovies(loader);
+            if (!staged) {
+                // A partial merge would look like a finished load, so keep the tables as they were
+                loader.abort();
+                System.err.println("Bulk load failed, nothing was merged; run it again");
+                return;
+            }
+            long rows = loader.finish();
+            System.out.println("Bulk load completed: " + rows + " staged rows merged in "
+                    + (System.currentTimeMillis() - started) + " ms");
+            System.out.println("TMDB request metrics: " + AbstractService.getRequestMetrics());
+            System.out.println(HibernateConfig.getPoolMetrics());
+        } catch (Exception e) {
+            System.err.println("Error during bulk load: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            emf.close();
+            HibernateConfig.getEntityManagerFactory().close();
+        }
+    }
+
+    /**
+     * Dump every movie with its genres and credits to a JSON Lines file, streamed in constant memory.
+     * The export keeps one connection for its whole run, so it uses the ingest pool like the other jobs.
+     */
+    private static void runExport(String file) {
+        HibernateConfig.setSchemaAction("update");
+        var emf = HibernateConfig.getIngestEntityManagerFactory();
+
+        try {
+            long started = System.currentTimeMillis();
+            long movies = new MovieService(emf).exportMoviesWithCredits(Path.of(file));
+            System.out.println("Exported " + movies + " movies to " + file + " in "
+                    + (System.currentTimeMillis() - started) + " ms");
+            System.out.println(HibernateConfig.getPoolMetrics());
+        } catch (Exception e) {
+            System.err.println("Error during export: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            emf.close();
+            HibernateConfig.getEntityManagerFactory().close();
+        }
+    }
+
+    /**
+     * Nightly job: keep the existing schema and only refresh what changed on TMDB
+     */
+    private static void runIncrementalSync() {
+        HibernateConfig.setSchemaAction("update");
+        var emf = HibernateConfig.getIngestEntityManagerFactory();
+
+        try {
+            IdentityMaps.warm(emf);
+            new GenreService(emf).fetchAllGenres();
+            new MovieService(emf).syncChangedMovies();
+            System.out.println("Incremental sync completed!");
+            System.out.println("TMDB request metrics: " + AbstractService.getRequestMetrics());
+            System.out.println(HibernateConfig.getCacheStatistics(emf));
+            System.out.println(HibernateConfig.getPoolMetrics());
+        } catch (Exception e) {
+            System.err.println("Error during incremental sync: " + e.getMessage());
+            e.printStackTrace();
         } finally {
             emf.close();
+            HibernateConfig.getEntityManagerFactory().close();
         }
     }
 }
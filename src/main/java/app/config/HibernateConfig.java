@@ -4,19 +4,54 @@ package app.config;
 import app.entities.Genre;
 import app.entities.Movie;
 import app.utils.Utils;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
-
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class HibernateConfig {
     private static EntityManagerFactory emf;
     private static EntityManagerFactory emfTest;
+    private static EntityManagerFactory ingestEmf;
     private static Boolean isTest = false;
+    private static String schemaAction = "create";
+
+    // Matches allocationSize of the entities' @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    // Connection pools: "read" serves getEntityManagerFactory, "ingest" the ingestion jobs
+    private static final String READ_POOL = "read";
+    private static final String INGEST_POOL = "ingest";
+    private static final Map<String, PoolMetrics> POOL_METRICS = new LinkedHashMap<>();
+
+    // Second-level cache regions named in the entities' @Cache and @NaturalIdCache annotations
+    private static final String[] CACHE_REGIONS = {
+            "actors", "actors-natural-id",
+            "directors", "directors-natural-id",
+            "genres", "genres-natural-id"
+    };
 
     public static void setTest(Boolean test) {
         isTest = test;
@@ -26,16 +61,39 @@ public class HibernateConfig {
         return isTest;
     }
 
+    /**
+     * Sets hibernate.hbm2ddl.auto for the next factory that is created.
+     * Incremental jobs use "update" so the data from earlier runs is kept.
+     */
+    public static void setSchemaAction(String action) {
+        schemaAction = action;
+    }
+
     public static EntityManagerFactory getEntityManagerFactory() {
         if (emf == null)
-            emf = createEMF(getTest());
+            emf = createEMF(getTest(), READ_POOL);
         return emf;
     }
 
+    /**
+     * Factory for ingestion jobs. It has a connection pool of its own, so a long backfill cannot
+     * starve the reads served through getEntityManagerFactory(). The schema is managed by that
+     * factory, which is therefore created first.
+     */
+    public static EntityManagerFactory getIngestEntityManagerFactory() {
+        if (getTest())
+            return getEntityManagerFactoryForTest();
+        if (ingestEmf == null) {
+            getEntityManagerFactory();
+            ingestEmf = createEMF(false, INGEST_POOL);
+        }
+        return ingestEmf;
+    }
+
     public static EntityManagerFactory getEntityManagerFactoryForTest() {
         if (emfTest == null){
             setTest(true);
-            emfTest = createEMF(getTest());  // No DB needed for test
+            emfTest = createEMF(getTest(), READ_POOL);  // No DB needed for test
         }
         return emfTest;
     }
@@ -46,10 +104,11 @@ public class HibernateConfig {
         configuration.addAnnotatedClass(app.entities.Director.class);
         configuration.addAnnotatedClass(app.entities.Movie.class);
         configuration.addAnnotatedClass(app.entities.Genre.class);
+        configuration.addAnnotatedClass(app.entities.SyncWatermark.class);
 
     }
 
-    private static EntityManagerFactory createEMF(boolean forTest) {
+    private static EntityManagerFactory createEMF(boolean forTest, String pool) {
         try {
             Configuration configuration = new Configuration();
             Properties props = new Properties();
@@ -62,6 +121,20 @@ public class HibernateConfig {
             } else {
                 props = setDevProperties(props);
             }
+            if (!forTest) {
+                HikariDataSource dataSource = createDataSource(props, pool);
+                props.put("hibernate.connection.datasource", dataSource);
+                configuration.setSessionFactoryObserver(new SessionFactoryObserver() {
+                    @Override
+                    public void sessionFactoryClosed(SessionFactory factory) {
+                        dataSource.close();
+                    }
+                });
+            }
+            if (INGEST_POOL.equals(pool)) {
+                props.put("hibernate.hbm2ddl.auto", "none");
+            }
+            props.put(ConfigSettings.CACHE_MANAGER, createCacheManager(pool));
             configuration.setProperties(props);
             getAnnotationConfiguration(configuration);
 
@@ -70,6 +143,10 @@ public class HibernateConfig {
                     .build();
             SessionFactory sf = configuration.buildSessionFactory(serviceRegistry);
             EntityManagerFactory emf = sf.unwrap(EntityManagerFactory.class);
+            if (!forTest && READ_POOL.equals(pool) && "update".equals(schemaAction)) {
+                migrateIdSequences(emf);
+                dropDuplicateTmdbIdConstraints(emf);
+            }
             return emf;
         }
         catch (Throwable ex) {
@@ -78,13 +155,189 @@ public class HibernateConfig {
         }
     }
 
+    /**
+     * Schemas created before the entities switched from IDENTITY to pooled sequences get fresh
+     * sequences from hbm2ddl that start at 1. Move every sequence past the highest existing id
+     * (never backwards) so new rows cannot collide with the old ones.
+     */
+    private static void migrateIdSequences(EntityManagerFactory emf) {
+        String[][] sequences = {
+                {"movies_seq", "movies", "id"},
+                {"actors_seq", "actors", "actor_id"},
+                {"director_seq", "director", "id"},
+                {"genres_seq", "genres", "id"}
+        };
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                for (String[] sequence : sequences) {
+                    em.createNativeQuery("SELECT setval('" + sequence[0] + "', GREATEST("
+                                    + "(SELECT COALESCE(MAX(" + sequence[2] + "), 0) FROM " + sequence[1] + ") + "
+                                    + ID_ALLOCATION_SIZE + ", (SELECT last_value FROM " + sequence[0] + ")))")
+                            .getSingleResult();
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * HikariCP pool on the connection settings in props, which are moved out of props.
+     * Sized by DB_READ_POOL_SIZE / DB_INGEST_POOL_SIZE; the read pool also reports connections
+     * held longer than DB_POOL_LEAK_DETECTION_MS (ingestion transactions are long by design).
+     */
+    private static HikariDataSource createDataSource(Properties props, String pool) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(pool);
+        config.setJdbcUrl((String) props.remove("hibernate.connection.url"));
+        config.setUsername((String) props.remove("hibernate.connection.username"));
+        config.setPassword((String) props.remove("hibernate.connection.password"));
+        config.setMaximumPoolSize(READ_POOL.equals(pool)
+                ? Utils.getIntPropertyValue("DB_READ_POOL_SIZE", "config.properties", 10)
+                : Utils.getIntPropertyValue("DB_INGEST_POOL_SIZE", "config.properties", 8));
+        config.setConnectionTimeout(Utils.getIntPropertyValue("DB_POOL_TIMEOUT_MS", "config.properties", 30000));
+        if (READ_POOL.equals(pool)) {
+            config.setLeakDetectionThreshold(
+                    Utils.getIntPropertyValue("DB_POOL_LEAK_DETECTION_MS", "config.properties", 60000));
+        }
+        // Driver properties no longer reach pgjdbc through hibernate.connection.*
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+
+        PoolMetrics metrics = new PoolMetrics(pool);
+        config.setMetricsTrackerFactory(metrics);
+        synchronized (POOL_METRICS) {
+            POOL_METRICS.put(pool, metrics);
+        }
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Acquisition wait, active and idle connections of every pool created so far
+     */
+    public static String getPoolMetrics() {
+        synchronized (POOL_METRICS) {
+            return POOL_METRICS.values().stream()
+                    .map(PoolMetrics::toString)
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+
+    /**
+     * One bounded, in-process Caffeine cache per second-level cache region.
+     * The size limit (entries per region) comes from L2_CACHE_MAX_ENTRIES in config.properties.
+     * Every factory gets a CacheManager of its own (the URI names the pool), which it closes
+     * together with itself; see getSecondLevelCaches for keeping them consistent.
+     */
+    private static CacheManager createCacheManager(String pool) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-l2-" + pool), HibernateConfig.class.getClassLoader());
+        long maxEntries = Utils.getIntPropertyValue("L2_CACHE_MAX_ENTRIES", "config.properties", 50_000);
+        for (String region : CACHE_REGIONS) {
+            if (cacheManager.getCache(region) == null) {
+                CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+                config.setMaximumSize(OptionalLong.of(maxEntries));
+                cacheManager.createCache(region, config);
+            }
+        }
+        return cacheManager;
+    }
+
+    /**
+     * The second-level caches of every open factory. Writes through Hibernate only update the
+     * writing factory's cache, so rows written with plain SQL (upserts, bulk merges) have to be
+     * evicted from all of them, or the other factory keeps serving the old row.
+     */
+    public static List<Cache> getSecondLevelCaches() {
+        return Stream.of(emf, ingestEmf, emfTest)
+                .filter(factory -> factory != null && factory.isOpen())
+                .map(EntityManagerFactory::getCache)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hit and miss counts of the second-level cache, overall and per region
+     */
+    public static String getCacheStatistics(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        StringBuilder report = new StringBuilder("Second-level cache: ")
+                .append(statistics.getSecondLevelCacheHitCount()).append(" hits, ")
+                .append(statistics.getSecondLevelCacheMissCount()).append(" misses; natural ids: ")
+                .append(statistics.getNaturalIdCacheHitCount()).append(" hits, ")
+                .append(statistics.getNaturalIdCacheMissCount()).append(" misses");
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                report.append("\n  ").append(region).append(": ")
+                        .append(regionStatistics.getHitCount()).append(" hits, ")
+                        .append(regionStatistics.getMissCount()).append(" misses");
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Schemas created before tmdbId became the natural id of Actor, Director and Genre still
+     * have the column's own unique constraint next to the natural id's, so every write
+     * maintained two identical indexes. The old one is dropped, but only once another unique
+     * index on tmdbId exists: the upserts' ON CONFLICT (tmdbId) needs one of them.
+     */
+    private static void dropDuplicateTmdbIdConstraints(EntityManagerFactory emf) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                for (String table : new String[]{"actors", "director", "genres"}) {
+                    String oldConstraint = table + "_tmdbid_key";
+                    Number otherUniqueIndexes = (Number) em.createNativeQuery(
+                                    "SELECT count(*) FROM pg_indexes WHERE schemaname = current_schema() "
+                                            + "AND tablename = ?1 AND indexname <> ?2 "
+                                            + "AND indexdef LIKE 'CREATE UNIQUE INDEX % (tmdbid)'")
+                            .setParameter(1, table)
+                            .setParameter(2, oldConstraint)
+                            .getSingleResult();
+                    if (otherUniqueIndexes.intValue() > 0) {
+                        em.createNativeQuery("ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + oldConstraint)
+                                .executeUpdate();
+                    }
+                }
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
     private static Properties setBaseProperties(Properties props) {
         props.put("hibernate.connection.driver_class", "org.postgresql.Driver");
-        props.put("hibernate.hbm2ddl.auto", "create");  // set to "update" when in production
+        props.put("hibernate.hbm2ddl.auto", schemaAction);  // set to "update" when in production
         props.put("hibernate.current_session_context_class", "thread");
         props.put("hibernate.show_sql", "false");
         props.put("hibernate.format_sql", "false");
         props.put("hibernate.use_sql_comments", "false");
+
+        // Batch inserts/updates; needs sequence ids (IDENTITY would force one round trip per row)
+        props.put("hibernate.jdbc.batch_size",
+                String.valueOf(Utils.getIntPropertyValue("JDBC_BATCH_SIZE", "config.properties", ID_ALLOCATION_SIZE)));
+        props.put("hibernate.order_inserts", "true");
+        props.put("hibernate.order_updates", "true");
+        props.put("hibernate.jdbc.batch_versioned_data", "true");
+        props.put("hibernate.id.optimizer.pooled.preferred", "pooled");
+        // Lets pgjdbc send a batch as multi-row INSERT statements
+        props.put("hibernate.connection.reWriteBatchedInserts", "true");
+
+        // Second-level cache for Actor, Director and Genre, including their tmdbId natural ids
+        props.put("hibernate.cache.use_second_level_cache", "true");
+        props.put("hibernate.cache.region.factory_class", "jcache");
+        props.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        props.put("hibernate.generate_statistics", "true");
+        props.put("hibernate.session.events.log", "false");  // keep statistics without per-session log lines
         return props;
     }
 
@@ -114,6 +367,7 @@ public class HibernateConfig {
         props.put("hibernate.archive.autodetection", "hbm,class");
         props.put("hibernate.show_sql", "false");
         props.put("hibernate.hbm2ddl.auto", "create-drop");
+        props.put("hibernate.cache.use_second_level_cache", "false");
         return props;
     }
 }
@@ -0,0 +1,85 @@
+package app.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Connection pool metrics of one HikariCP pool: how long threads waited to acquire a
+ * connection, how many acquisitions timed out, and the current active, idle and waiting counts.
+ * Register it with HikariConfig.setMetricsTrackerFactory; the pool then reports to it.
+ */
+public class PoolMetrics implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final String name;
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile PoolStats poolStats;
+
+    public PoolMetrics(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedNanos) {
+        acquisitions.incrementAndGet();
+        acquireNanos.addAndGet(elapsedNanos);
+        maxAcquireNanos.accumulate(elapsedNanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public double getAverageAcquireMillis() {
+        long count = acquisitions.get();
+        return count == 0 ? 0 : acquireNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public int getActiveConnections() {
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getActiveConnections() : 0;
+    }
+
+    public int getIdleConnections() {
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getIdleConnections() : 0;
+    }
+
+    public int getPendingThreads() {
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getPendingThreads() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s pool: %d active, %d idle, %d waiting; %d acquisitions, avg wait %.2f ms, max %.2f ms, %d timeouts",
+                name, getActiveConnections(), getIdleConnections(), getPendingThreads(),
+                getAcquisitions(), getAverageAcquireMillis(), getMaxAcquireMillis(), getTimeouts());
+    }
+}
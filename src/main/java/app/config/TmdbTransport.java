@@ -0,0 +1,327 @@
+package app.config;
+
+import app.DTO.*;
+import app.exceptions.TmdbNotFoundException;
+import app.utils.RateLimiter;
+import app.utils.ResponseCache;
+import app.utils.SingleFlight;
+import app.utils.Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The one HTTP transport every service uses to talk to TMDB.
+ * Owns the shared HttpClient (HTTP/2, pooled connections, bounded executor), the
+ * pre-warmed ObjectMapper, the quota rate limiter, request coalescing and the
+ * on-disk response cache.
+ */
+public class TmdbTransport {
+
+    private static TmdbTransport instance;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+
+    // Shared so the combined request rate of all services stays inside the TMDB quota
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttledResponses = new AtomicLong();
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    // null when HTTP_CACHE_ENABLED=false
+    private final ResponseCache responseCache;
+
+    public static synchronized TmdbTransport getInstance() {
+        if (instance == null) {
+            instance = new TmdbTransport();
+        }
+        return instance;
+    }
+
+    private TmdbTransport() {
+        int threads = Utils.getIntPropertyValue("TMDB_HTTP_THREADS", "config.properties", 8);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(createExecutor(threads))
+                .build();
+        this.requestTimeout = Duration.ofSeconds(
+                Utils.getIntPropertyValue("TMDB_REQUEST_TIMEOUT_SECONDS", "config.properties", 30));
+
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        prewarm(objectMapper);
+
+        this.rateLimiter = new RateLimiter(
+                Utils.getIntPropertyValue("TMDB_REQUESTS_PER_SECOND", "config.properties", 40),
+                Utils.getIntPropertyValue("TMDB_BURST", "config.properties", 20));
+        this.maxRetries = Utils.getIntPropertyValue("TMDB_MAX_RETRIES", "config.properties", 5);
+        this.responseCache = createResponseCache();
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Concurrent callers asking for the same URL and response type share one request
+     * and one parsed result
+     */
+    public <T> T getShared(String url, Duration cacheTtl, Class<T> responseClass) {
+        String flightKey = ResponseCache.keyFor(url) + " as " + responseClass.getName();
+        return singleFlight.execute(flightKey, () ->
+                get(url, cacheTtl, body -> objectMapper.readValue(body, responseClass)));
+    }
+
+    /**
+     * Sends a GET through the shared rate limiter. 429 and 503 responses are retried
+     * after the server's Retry-After (or exponential backoff) plus jitter.
+     * Cacheable responses are served from disk while fresh and revalidated with
+     * If-None-Match / If-Modified-Since once stale. Bodies are requested gzip/deflate
+     * encoded and decompressed while they are read.
+     * The reader's failures belong to the caller and are rethrown, an IOException wrapped in an
+     * UncheckedIOException; that includes a body that breaks off while an uncached response is streamed.
+     * @return the decoded body, or null if the request failed
+     * @throws TmdbNotFoundException if TMDB has no such resource; unlike a failed request
+     *                               asking again will not help
+     */
+    public <T> T get(String url, Duration cacheTtl, BodyReader<T> reader) {
+        try {
+            boolean cacheable = responseCache != null && !cacheTtl.isZero();
+            String cacheKey = cacheable ? ResponseCache.keyFor(url) : null;
+            ResponseCache.Entry cached = cacheable ? responseCache.get(cacheKey).orElse(null) : null;
+
+            if (cached != null && cached.isFresh()) {
+                responseCache.recordHit();
+                return read(reader, new ByteArrayInputStream(cached.body()));
+            }
+
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                    .uri(new URI(url))
+                    .timeout(requestTimeout)
+                    .header("accept", "application/json")
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .GET();
+            if (cached != null && cached.etag() != null) {
+                requestBuilder.header("If-None-Match", cached.etag());
+            }
+            if (cached != null && cached.lastModified() != null) {
+                requestBuilder.header("If-Modified-Since", cached.lastModified());
+            }
+            HttpRequest request = requestBuilder.build();
+
+            for (int attempt = 0; ; attempt++) {
+                rateLimiter.acquire();
+                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                int status = response.statusCode();
+
+                try (InputStream raw = response.body()) {
+                    if (status == 304 && cached != null) {
+                        responseCache.recordRevalidation();
+                        responseCache.put(cacheKey, new ResponseCache.Entry(cached.body(), cached.etag(),
+                                cached.lastModified(), System.currentTimeMillis() + cacheTtl.toMillis()));
+                        return read(reader, new ByteArrayInputStream(cached.body()));
+                    }
+
+                    if (status == 200) {
+                        try (InputStream body = decode(response, raw)) {
+                            if (!cacheable) {
+                                return read(reader, body);
+                            }
+                            responseCache.recordMiss();
+                            byte[] bytes = body.readAllBytes();
+                            responseCache.put(cacheKey, new ResponseCache.Entry(bytes,
+                                    response.headers().firstValue("ETag").orElse(null),
+                                    response.headers().firstValue("Last-Modified").orElse(null),
+                                    System.currentTimeMillis() + cacheTtl.toMillis()));
+                            return read(reader, new ByteArrayInputStream(bytes));
+                        }
+                    }
+
+                    if (status == 404) {
+                        throw new TmdbNotFoundException("TMDB has no resource at " + URI.create(url).getPath());
+                    }
+
+                    if ((status == 429 || status == 503) && attempt < maxRetries) {
+                        if (status == 429) {
+                            throttledResponses.incrementAndGet();
+                        }
+                        retries.incrementAndGet();
+                        long delayMillis = retryDelayMillis(response, attempt);
+                        rateLimiter.pause(delayMillis);
+                        Thread.sleep(delayMillis);
+                        continue;
+                    }
+
+                    String error = new String(decode(response, raw).readAllBytes(), StandardCharsets.UTF_8);
+                    System.out.println("Error fetching data from API (" + status + "): " + error);
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Keeps the reader's IOExceptions apart from those of the request, which only make get return null
+    private static <T> T read(BodyReader<T> reader, InputStream body) {
+        try {
+            return reader.read(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Force the next request for this URL to revalidate its cached response
+     */
+    public void expireCached(String url) {
+        if (responseCache != null) {
+            responseCache.expire(ResponseCache.keyFor(url));
+        }
+    }
+
+    // java.net.http does not decompress on its own
+    private static InputStream decode(HttpResponse<?> response, InputStream raw) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if (encoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(raw, 8192);
+        }
+        if (encoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(raw);
+        }
+        return raw;
+    }
+
+    private static long retryDelayMillis(HttpResponse<?> response, int attempt) {
+        long baseMillis = response.headers().firstValue("Retry-After")
+                .map(TmdbTransport::parseRetryAfter)
+                .orElse(-1L);
+        if (baseMillis < 0) {
+            baseMillis = Math.min(30_000L, 1_000L << Math.min(attempt, 5));
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(baseMillis / 4 + 1);
+        return baseMillis + jitter;
+    }
+
+    // Retry-After is either delta-seconds or an HTTP-date
+    private static long parseRetryAfter(String value) {
+        try {
+            return Long.parseLong(value.trim()) * 1000L;
+        } catch (NumberFormatException ignored) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0L, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+            } catch (DateTimeParseException e) {
+                return -1L;
+            }
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "tmdb-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Build the deserializers for the TMDB DTOs up front instead of on the first response
+     */
+    private static void prewarm(ObjectMapper mapper) {
+        List<Class<?>> types = List.of(MovieDTO.class, MovieDetailsDTO.class, CreditsDTO.class, ActorDTO.class,
+                DirectorDTO.class, GenreDTO.class, GenreListDTO.class, ChangeDTO.class, ResponseDTO.class);
+        for (Class<?> type : types) {
+            try {
+                mapper.readerFor(type).readValue("{}");
+            } catch (IOException ignored) {
+                // Only the deserializer lookup matters here
+            }
+        }
+    }
+
+    private static ResponseCache createResponseCache() {
+        if (!Boolean.parseBoolean(Utils.getPropertyValue("HTTP_CACHE_ENABLED", "config.properties", "true"))) {
+            return null;
+        }
+        Path directory = Path.of(Utils.getPropertyValue("HTTP_CACHE_DIR", "config.properties", "http-cache"));
+        long maxBytes = Utils.getIntPropertyValue("HTTP_CACHE_MAX_MB", "config.properties", 256) * 1024L * 1024L;
+        return new ResponseCache(directory, maxBytes);
+    }
+
+    /**
+     * Snapshot of the transport metrics
+     */
+    public RequestMetrics getMetrics() {
+        return new RequestMetrics(
+                rateLimiter.getAcquisitions(),
+                rateLimiter.getThrottledAcquisitions(),
+                rateLimiter.getTotalWaitMillis(),
+                rateLimiter.getMaxWaitMillis(),
+                retries.get(),
+                throttledResponses.get(),
+                responseCache != null ? responseCache.getHits() : 0,
+                responseCache != null ? responseCache.getRevalidations() : 0,
+                responseCache != null ? responseCache.getMisses() : 0,
+                responseCache != null ? responseCache.getEvictions() : 0,
+                responseCache != null ? responseCache.getSizeBytes() : 0,
+                singleFlight.getSharedCalls()
+        );
+    }
+
+    public record RequestMetrics(long requests,
+                                 long limitedRequests,
+                                 long limiterWaitMillis,
+                                 long maxLimiterWaitMillis,
+                                 long retries,
+                                 long throttledResponses,
+                                 long cacheHits,
+                                 long cacheRevalidations,
+                                 long cacheMisses,
+                                 long cacheEvictions,
+                                 long cacheSizeBytes,
+                                 long coalescedCalls) { }
+}
@@ -2,11 +2,18 @@ package app.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "actors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "actors")
+@NaturalIdCache(region = "actors-natural-id")
 @Getter
 @Setter
 @Builder
@@ -16,12 +23,14 @@ import java.util.Set;
 @ToString(exclude = {"directors", "movies"})
 public class Actor implements BaseEntity<Integer> {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "actor_seq")
+    @SequenceGenerator(name = "actor_seq", sequenceName = "actors_seq", allocationSize = 50)
     @Column(name = "actor_id")
     @EqualsAndHashCode.Include
     private Integer id;
 
-    @Column(name = "tmdbId", unique = true)
+    @NaturalId  // also the unique constraint
+    @Column(name = "tmdbId")
     private Integer tmdbId;
 
     @Column(name = "actor_name", nullable = false, length = 255)
@@ -30,6 +39,10 @@ public class Actor implements BaseEntity<Integer> {
     @Column(name = "actor_age", nullable = false)
     private int age;
 
+    // Fingerprint of the TMDB fields this row was last written from, see ContentHash
+    @Column(name = "source_hash")
+    private Long sourceHash;
+
     // Many-to-Many relationship with Director
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "actor_director",
@@ -2,11 +2,18 @@ package app.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.util.HashSet;
 import java.util.Set;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "directors")
+@NaturalIdCache(region = "directors-natural-id")
 @Getter
 @Setter
 @Builder
@@ -17,11 +24,13 @@ import java.util.Set;
 public class Director implements BaseEntity<Integer> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "director_seq")
+    @SequenceGenerator(name = "director_seq", sequenceName = "director_seq", allocationSize = 50)
     @EqualsAndHashCode.Include  // only id is used
     private Integer id;
 
-    @Column(name = "tmdbId", unique = true)
+    @NaturalId  // also the unique constraint
+    @Column(name = "tmdbId")
     private Integer tmdbId;
 
     @Setter
@@ -33,6 +42,10 @@ public class Director implements BaseEntity<Integer> {
 
     @Column(name = "job")
     private String job;
+
+    // Fingerprint of the TMDB fields this row was last written from, see ContentHash
+    @Column(name = "source_hash")
+    private Long sourceHash;
     @ManyToMany(mappedBy = "directors", fetch = FetchType.LAZY)
     @Builder.Default
     private Set<Actor> actors = new HashSet<>();
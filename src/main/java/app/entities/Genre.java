@@ -2,6 +2,10 @@ package app.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,19 +17,28 @@ import java.util.Set;
 @Setter
 @AllArgsConstructor
 @Table(name = "genres")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genres")
+@NaturalIdCache(region = "genres-natural-id")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString(exclude = {"movies"})
 public class Genre implements BaseEntity<Integer> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genre_seq")
+    @SequenceGenerator(name = "genre_seq", sequenceName = "genres_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
     private String genreName;
 
-    @Column(name = "tmdbId", unique = true)
+    @NaturalId  // also the unique constraint
+    @Column(name = "tmdbId")
     private Integer tmdbId;
 
+    // Fingerprint of the TMDB fields this row was last written from, see ContentHash
+    @Column(name = "source_hash")
+    private Long sourceHash;
+
     // Inverse side of Many-to-Many relationship with Movie
     @ManyToMany(mappedBy = "genres", cascade = {CascadeType.MERGE})
     @Builder.Default
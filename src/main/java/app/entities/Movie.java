@@ -15,13 +15,29 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "movies")
+// (sort key, id) indexes let MovieDAO.findPage seek straight to a page's cursor
+@Table(name = "movies", indexes = {
+        @Index(name = "movies_rating_id_idx", columnList = "rating, id"),
+        @Index(name = "movies_release_date_id_idx", columnList = "release_date, id")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Movie.SUMMARY_GRAPH),
+        @NamedEntityGraph(name = Movie.WITH_GENRES_GRAPH, attributeNodes = @NamedAttributeNode("genres")),
+        @NamedEntityGraph(name = Movie.WITH_CREDITS_GRAPH, attributeNodes = {
+                @NamedAttributeNode("genres"), @NamedAttributeNode("actors"), @NamedAttributeNode("director")})
+})
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString(exclude = {"genres", "actors", "director"})
 public class Movie implements BaseEntity<Integer> {
 
+    // Fetch plans for MovieDAO: the associations are lazy, a graph names the ones a use case loads
+    public static final String SUMMARY_GRAPH = "summary";
+    public static final String WITH_GENRES_GRAPH = "withGenres";
+    public static final String WITH_CREDITS_GRAPH = "withCredits";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movie_seq")
+    @SequenceGenerator(name = "movie_seq", sequenceName = "movies_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Integer id;
 
@@ -40,8 +56,16 @@ public class Movie implements BaseEntity<Integer> {
   @Column(name = "original_language")
     private String originalLanguage;
 
+    // Fingerprint of the TMDB fields this row was last written from, see ContentHash
+    @Column(name = "source_hash")
+    private Long sourceHash;
+
+    // Fingerprint of the cast and director last stored for this movie
+    @Column(name = "credits_hash")
+    private Long creditsHash;
+
     // Many-to-Many relationship with Genre (Movie can have multiple genres)
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.MERGE)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
     @JoinTable(name = "movies_and_genres",
         joinColumns = @JoinColumn(name = "movie_id"),
         inverseJoinColumns = @JoinColumn(name = "genre_id"))
@@ -49,7 +73,7 @@ public class Movie implements BaseEntity<Integer> {
     private Set<Genre> genres = new HashSet<>();
 
     // Many-to-Many relationship with Actor (Movie can have multiple actors)
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "movies_and_actors",
             joinColumns = @JoinColumn(name = "movie_id"),
             inverseJoinColumns = @JoinColumn(name = "actor_id"))
@@ -57,7 +81,7 @@ public class Movie implements BaseEntity<Integer> {
     private Set<Actor> actors = new HashSet<>();
 
     // Many-to-One relationship with Director (Movie has one director)
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "director_id")
     private Director director;
 
@@ -0,0 +1,40 @@
+package app.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Remembers how far an incremental sync job has come, one row per job
+ */
+@Entity
+@Table(name = "sync_watermarks")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString
+public class SyncWatermark implements BaseEntity<String> {
+
+    @Id
+    @Column(name = "job_name")
+    @EqualsAndHashCode.Include
+    private String id;
+
+    @Column(name = "last_synced_on", nullable = false)
+    private LocalDate lastSyncedOn;
+
+    // Implementation of BaseEntity interface
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(String id) {
+        this.id = id;
+    }
+}
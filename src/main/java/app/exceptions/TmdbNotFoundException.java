@@ -0,0 +1,14 @@
+package app.exceptions;
+
+import app.enums.ErrorType;
+
+/**
+ * TMDB answered 404: the resource does not exist (any more) and asking again will not help.
+ * Thrown by the transport only, so callers can tell it apart from their own ApiExceptions.
+ */
+public class TmdbNotFoundException extends ApiException {
+
+    public TmdbNotFoundException(String msg) {
+        super(ErrorType.NOT_FOUND, ErrorType.NOT_FOUND.getErrorMessage() + "\n" + msg);
+    }
+}
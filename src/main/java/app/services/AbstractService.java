@@ -2,16 +2,20 @@ package app.services;
 
 import app.DAO.*;
 import app.DTO.*;
+import app.config.TmdbTransport;
 import app.entities.*;
 import app.exceptions.*;
+import app.utils.Utils;
 import jakarta.persistence.EntityManagerFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.URI;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -28,8 +32,12 @@ public abstract class AbstractService   <DTO    extends BaseDTO<ID>,
     protected final ObjectMapper objectMapper;
     protected final String apiKey;
     protected final HttpClient httpClient;
+    protected final TmdbTransport transport;
     protected final String API_URL = "https://api.themoviedb.org/3";
 
+    private static final Duration DEFAULT_CACHE_TTL =
+            Duration.ofHours(Utils.getIntPropertyValue("HTTP_CACHE_TTL_HOURS", "config.properties", 24));
+
     // Core dependencies
     protected final EntityManagerFactory emf;
     protected final BaseDAO<Entity, ID> dao;
@@ -38,11 +46,11 @@ public abstract class AbstractService   <DTO    extends BaseDTO<ID>,
         this.emf = emf;
         this.dao = dao;
 
-        // Initialize HTTP client
+        // Shared HTTP client and mapper
         this.apiKey = System.getenv("API_KEY");
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        this.httpClient = HttpClient.newHttpClient();
+        this.transport = TmdbTransport.getInstance();
+        this.objectMapper = transport.getObjectMapper();
+        this.httpClient = transport.getHttpClient();
     }
 
     // ===========================================
@@ -63,6 +71,24 @@ public abstract class AbstractService   <DTO    extends BaseDTO<ID>,
         }
     }
 
+    /**
+     * Get one page of entities as DTOs, see PageRequest
+     */
+    @Override
+    public Page<DTO> getPage(PageRequest request) {
+        if (request == null) {
+            throw ApiException.badRequest("Page request cannot be null");
+        }
+
+        try {
+            return dao.findPage(request).map(this::convertToDTO);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest(e.getMessage());
+        } catch (Exception e) {
+            throw ApiException.serverError("Failed to retrieve page of entities: " + e.getMessage());
+        }
+    }
+
     /**
      * Get entity by ID as DTO
      */
@@ -144,55 +170,111 @@ public abstract class AbstractService   <DTO    extends BaseDTO<ID>,
     // ===========================================
 
     protected <T> T makeApiRequest(String endpoint, Class<T> responseClass) {
-        try {
-            String url = API_URL + endpoint + (endpoint.contains("?") ? "&" : "?") + "api_key=" + apiKey;
+        String url = API_URL + endpoint + (endpoint.contains("?") ? "&" : "?") + "api_key=" + apiKey;
+        return transport.getShared(url, cacheTtl(endpoint), responseClass);
+    }
+
+    protected <T> T makeApiRequestWithParams(String endpoint, Map<String, String> params, Class<T> responseClass) {
+        return transport.getShared(buildUrl(endpoint, params), cacheTtl(endpoint), responseClass);
+    }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(new URI(url))
-                    .header("accept", "application/json")
-                    .GET()
-                    .build();
+    /**
+     * Fetch the raw (decompressed) response body, leaving decoding to the caller,
+     * e.g. a separate decode stage of an ingestion pipeline
+     * @throws TmdbNotFoundException if TMDB does not have the resource (any more)
+     */
+    protected byte[] fetchApiBody(String endpoint, Map<String, String> params) {
+        return transport.get(buildUrl(endpoint, params), cacheTtl(endpoint), InputStream::readAllBytes);
+    }
+
+    /**
+     * Streams a paged TMDB response (e.g. /discover/movie) straight from the response body.
+     * Each entry of "results" is decoded into itemClass and handed to the consumer as soon as
+     * it is parsed, so the page is never held as a String or a list of maps.
+     * Exceptions thrown by the consumer are rethrown.
+     * @return the page metadata with an empty results list, or null if the request failed
+     */
+    protected <T> ResponseDTO<T> streamPagedResults(String endpoint, Map<String, String> params,
+                                                    Class<T> itemClass, Consumer<? super T> consumer) {
+        return transport.get(buildUrl(endpoint, params), cacheTtl(endpoint),
+                body -> readPagedResults(body, itemClass, consumer));
+    }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private <T> ResponseDTO<T> readPagedResults(InputStream body, Class<T> itemClass,
+                                                Consumer<? super T> consumer) throws IOException {
+        Integer page = null;
+        Integer totalPages = null;
+        Integer totalResults = null;
 
-            if (response.statusCode() == 200) {
-                return objectMapper.readValue(response.body(), responseClass);
-            } else {
-                System.out.println("Error fetching data from API: " + response.body());
-                return null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in paged response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "page" -> page = readInt(parser);
+                    case "total_pages" -> totalPages = readInt(parser);
+                    case "total_results" -> totalResults = readInt(parser);
+                    case "results" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                consumer.accept(objectMapper.readValue(parser, itemClass));
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
         }
+        return new ResponseDTO<>(page, Collections.emptyList(), totalPages, totalResults);
     }
 
-    protected <T> T makeApiRequestWithParams(String endpoint, Map<String, String> params, Class<T> responseClass) {
-        try {
-            StringBuilder urlBuilder = new StringBuilder(API_URL + endpoint + "?api_key=" + apiKey);
+    private static Integer readInt(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null;
+    }
 
-            for (Map.Entry<String, String> param : params.entrySet()) {
-                urlBuilder.append("&").append(param.getKey()).append("=").append(param.getValue());
-            }
+    private String buildUrl(String endpoint, Map<String, String> params) {
+        StringBuilder urlBuilder = new StringBuilder(API_URL + endpoint + "?api_key=" + apiKey);
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(new URI(urlBuilder.toString()))
-                    .header("accept", "application/json")
-                    .GET()
-                    .build();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            urlBuilder.append("&").append(param.getKey()).append("=").append(param.getValue());
+        }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return urlBuilder.toString();
+    }
 
-            if (response.statusCode() == 200) {
-                return objectMapper.readValue(response.body(), responseClass);
-            } else {
-                System.out.println("Error fetching data from API: " + response.body());
-                return null;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+    /**
+     * How long a response for this endpoint may be served from the on-disk cache.
+     * Listings and change feeds are never cached; services can override this for
+     * resources that rarely change.
+     */
+    protected Duration cacheTtl(String endpoint) {
+        if (endpoint.startsWith("/discover") || endpoint.startsWith("/search") || endpoint.contains("/changes")) {
+            return Duration.ZERO;
         }
+        return DEFAULT_CACHE_TTL;
+    }
+
+    /**
+     * Force the next request for this endpoint to revalidate its cached response
+     */
+    protected void expireCachedResponse(String endpoint) {
+        expireCachedResponse(endpoint, Map.of());
+    }
+
+    protected void expireCachedResponse(String endpoint, Map<String, String> params) {
+        transport.expireCached(buildUrl(endpoint, params));
+    }
+
+    /**
+     * Snapshot of the shared HTTP client metrics across all services
+     */
+    public static TmdbTransport.RequestMetrics getRequestMetrics() {
+        return TmdbTransport.getInstance().getMetrics();
     }
 
     protected <T> T searchContent(String query, String contentType, Class<T> responseClass) {
@@ -1,5 +1,7 @@
 package app.services;
 
+import app.DAO.Page;
+import app.DAO.PageRequest;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +16,11 @@ public interface BaseService<DTO, ID> {
      */
     List<DTO> getAll();
 
+    /**
+     * Get one page of entities as DTOs, continuing from the request's cursor
+     */
+    Page<DTO> getPage(PageRequest request);
+
     /**
      * Get entity by ID as DTO
      */
@@ -11,8 +11,11 @@ import jakarta.persistence.EntityManagerFactory;
  */
 public class DirectorService extends AbstractService<DirectorDTO, Director, Integer> {
 
+    private final DirectorDAO directorDAO;
+
     public DirectorService(EntityManagerFactory emf) {
         super(emf, new DirectorDAO(emf));
+        this.directorDAO = (DirectorDAO) dao; // Cast for additional methods
     }
 
     // ===========================================
@@ -67,7 +70,7 @@ public class DirectorService extends AbstractService<DirectorDTO, Director, Inte
             .orElseThrow(() -> ApiException.notFound("Director not found with ID: " + id));
 
         // Business rule: Cannot delete director with movies
-        if (!director.getMovies().isEmpty()) {
+        if (directorDAO.hasMovies(id)) {
             throw ApiException.conflict("Cannot delete director with ID " + id + " because they have directed movies");
         }
 
@@ -1,6 +1,8 @@
 package app.services;
 
 import app.DAO.GenreDAO;
+import app.DAO.GenreDictionary;
+import app.DAO.UpsertResult;
 import app.DTO.GenreDTO;
 import app.DTO.GenreListDTO;
 import app.DTO.MovieDTO;
@@ -10,11 +12,11 @@ import app.entities.Movie;
 import app.exceptions.ApiException;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -71,8 +73,8 @@ public class GenreService extends AbstractService<GenreDTO, Genre, Integer> {
             throw ApiException.badRequest("Genre name cannot be null or empty");
         }
         
-        return genreDAO.findByGenreName(genreName)
-            .map(this::convertToDTO)
+        return GenreDictionary.get(emf).byName(genreName)
+            .map(GenreDictionary.Entry::toDTO)
             .orElseThrow(() -> ApiException.notFound("Genre not found with name: " + genreName));
     }
 
@@ -84,25 +86,20 @@ public class GenreService extends AbstractService<GenreDTO, Genre, Integer> {
             throw ApiException.badRequest("Genre name cannot be null or empty");
         }
         
-        try {
-            return genreDAO.findByGenreNameContaining(genreName).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        } catch (Exception e) {
-            throw ApiException.serverError("Failed to search genres by name: " + e.getMessage());
-        }
+        return GenreDictionary.get(emf).searchByName(genreName).stream()
+            .map(GenreDictionary.Entry::toDTO)
+            .collect(Collectors.toList());
     }
 
     /**
      * Get all movies for a specific genre
      */
     public List<String> getMoviesByGenre(Integer genreId) {
-        Genre genre = dao.findById(genreId)
-            .orElseThrow(() -> ApiException.notFound("Genre not found with ID: " + genreId));
+        if (dao.findById(genreId).isEmpty()) {
+            throw ApiException.notFound("Genre not found with ID: " + genreId);
+        }
 
-        return genre.getMovies().stream()
-            .map(movie -> movie.getTitle())
-            .collect(Collectors.toList());
+        return genreDAO.findMovieTitles(genreId);
     }
 
     /**
@@ -118,7 +115,7 @@ public class GenreService extends AbstractService<GenreDTO, Genre, Integer> {
             .orElseThrow(() -> ApiException.notFound("Genre not found with ID: " + id));
 
         // Business rule: Cannot delete genre with movies
-        if (!genre.getMovies().isEmpty()) {
+        if (genreDAO.hasMovies(id)) {
             throw ApiException.conflict("Cannot delete genre with ID " + id + " because it has associated movies");
         }
 
@@ -127,6 +124,7 @@ public class GenreService extends AbstractService<GenreDTO, Genre, Integer> {
         } catch (Exception e) {
             throw ApiException.serverError("Failed to delete genre with ID " + id + ": " + e.getMessage());
         }
+        GenreDictionary.reload(emf);
     }
 
     /**
@@ -137,43 +135,66 @@ public class GenreService extends AbstractService<GenreDTO, Genre, Integer> {
         validateDTO(dto);
 
         // Check if genre with same name already exists
-        if (genreDAO.findByGenreName(dto.genreName()).isPresent()) {
+        if (GenreDictionary.get(emf).byName(dto.genreName()).isPresent()) {
             throw ApiException.conflict("Genre already exists with name: " + dto.genreName());
         }
 
-        return super.save(dto);
+        GenreDTO saved = super.save(dto);
+        GenreDictionary.reload(emf);
+        return saved;
     }
 
+    @Override
+    public GenreDTO update(GenreDTO dto) {
+        GenreDTO updated = super.update(dto);
+        GenreDictionary.reload(emf);
+        return updated;
+    }
+
+    /**
+     * The genre list practically never changes, so keep it cached for a week
+     */
+    @Override
+    protected Duration cacheTtl(String endpoint) {
+        if (endpoint.startsWith("/genre/")) {
+            return Duration.ofDays(7);
+        }
+        return super.cacheTtl(endpoint);
+    }
+
+    /**
+     * Fetch TMDB's movie genre list without storing it
+     */
+    public List<GenreDTO> fetchGenreList() {
+        Map<String, String> params = new HashMap<>();
+        params.put("language", "en");
+        GenreListDTO response = makeApiRequestWithParams("/genre/movie/list", params, GenreListDTO.class);
+
+        if (response == null || response.getGenres() == null) {
+            return List.of();
+        }
+        return List.copyOf(response.getGenres());
+    }
+
+    /**
+     * Fetch the genre list and upsert it in one batch, skipping unchanged genres.
+     * The genre dictionary is reloaded afterwards.
+     */
     public void fetchAllGenres() {
-            try {
-                Map<String, String> params = new HashMap<>();
-                params.put("language", "en");
-                GenreListDTO response = makeApiRequestWithParams("/genre/movie/list", params, GenreListDTO.class);
-
-                if (response != null && response.getGenres() != null) {
-                    for (Object genreObj : response.getGenres()) {
-                        try {
-                            GenreDTO genreDTO = objectMapper.convertValue(genreObj, GenreDTO.class);
-                            Optional<Genre> existingGenre = genreDAO.findByTmdbId(genreDTO.id());
-                            if (existingGenre.isEmpty()) {
-                                Genre entity = convertToEntity(genreDTO);
-                                genreDAO.persist(entity);
-                                System.out.println("Inserted new genre: " + genreDTO.genreName());
-                            } else {
-                                Genre existing = existingGenre.get();
-                                existing.setGenreName(genreDTO.genreName());
-                                genreDAO.update(existing);
-                                System.out.println("Updated existing genre: " + genreDTO.genreName());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Failed to process genre: " + e.getMessage());
-                            throw new RuntimeException(e);
-                        }
-                    }
-                }
-            } catch (RuntimeException e) {
-                System.err.println("Failed to process genre: " + e.getMessage());
-                throw new RuntimeException(e);
-            }
+        List<Genre> genres = fetchGenreList().stream()
+                .map(genreDTO -> {
+                    Genre genre = convertToEntity(genreDTO);
+                    genre.setSourceHash(genreDTO.sourceHash());
+                    return genre;
+                })
+                .collect(Collectors.toList());
+        try {
+            UpsertResult stored = genreDAO.upsertAll(genres);
+            System.out.println("Stored " + stored.changed() + " genres, " + stored.unchanged() + " unchanged");
+            GenreDictionary.reload(emf);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to process genres: " + e.getMessage());
+            throw e;
         }
+    }
 }
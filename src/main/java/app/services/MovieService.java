@@ -1,16 +1,39 @@
 package app.services;
 
+import app.DAO.ActorDAO;
+import app.DAO.BulkLoader;
+import app.DAO.DirectorDAO;
+import app.DAO.GenreDictionary;
 import app.DAO.MovieDAO;
+import app.DAO.Page;
+import app.DAO.PageRequest;
+import app.DAO.SyncWatermarkDAO;
+import app.DAO.UpsertResult;
 import app.DTO.*;
 import app.entities.*;
 import app.exceptions.ApiException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import app.exceptions.TmdbNotFoundException;
+import app.utils.ChangeCounter;
+import app.utils.CheckpointJournal;
+import app.utils.Pipeline;
+import app.utils.Utils;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.TypedQuery;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -18,11 +41,39 @@ import java.util.stream.Collectors;
  */
 public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
 
+    // TMDB refuses /discover pages beyond this
+    private static final int MAX_DISCOVER_PAGES = 500;
+
+    // TMDB's /movie/changes accepts at most this many days per query
+    private static final int MAX_CHANGES_WINDOW_DAYS = 14;
+
+    // Movies read per query when printing the whole table
+    private static final int PRINT_PAGE_SIZE = 200;
+    private static final String MOVIE_SYNC_JOB = "movie_sync";
+    private static final String APPEND_TO_RESPONSE = "append_to_response";
+    private static final int PIPELINE_QUEUE_CAPACITY =
+            Utils.getIntPropertyValue("PIPELINE_QUEUE_CAPACITY", "config.properties", 64);
+    private static final Duration PIPELINE_REPORT_INTERVAL =
+            Duration.ofSeconds(Utils.getIntPropertyValue("PIPELINE_REPORT_SECONDS", "config.properties", 10));
+
+    // Checkpoint journals of the resumable ingestion jobs, see CheckpointJournal
+    private static final Path CHECKPOINT_DIR =
+            Path.of(Utils.getPropertyValue("CHECKPOINT_DIR", "config.properties", "checkpoints"));
+    private static final String DANISH_MOVIES_JOB = "danish-movies";
+    private static final String MOVIE_CAST_JOB = "movie-cast";
+    private static final String SYNC_CAST_JOB = "movie-sync-cast";
+
     private final MovieDAO movieDAO;
+    private final ActorDAO actorDAO;
+    private final DirectorDAO directorDAO;
+    private final SyncWatermarkDAO watermarkDAO;
 
     public MovieService(EntityManagerFactory emf) {
         super(emf, new MovieDAO(emf));
         this.movieDAO = (MovieDAO) dao; // Cast for additional methods
+        this.actorDAO = new ActorDAO(emf);
+        this.directorDAO = new DirectorDAO(emf);
+        this.watermarkDAO = new SyncWatermarkDAO(emf);
     }
 
     // ===========================================
@@ -47,32 +98,28 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
 
     @Override
     protected Movie convertToEntity(MovieDTO dto) {
-        try (EntityManager em = emf.createEntityManager()) {
-            Movie movie = Movie.builder()
-                    .title(dto.title())
-                    .releaseDate(dto.releaseDate())
-                    .rating(dto.rating())
-                    .originalLanguage(dto.originalLanguage())
-                    .build();
-
-            // Fetch and set genres if provided
-            if (dto.genreIds() != null && !dto.genreIds().isEmpty()) {
-                Set<Genre> genres = new HashSet<>();
-                for (Integer genreId : dto.genreIds()) {
-                    Genre genre = em.find(Genre.class, genreId);
-                    if (genre == null) {
-                        genres.add(genre);
-                    } else {
-                        throw ApiException.badRequest("Genre with ID " + genreId + " not found");
-                    }
+        Movie movie = Movie.builder()
+                .title(dto.title())
+                .releaseDate(dto.releaseDate())
+                .rating(dto.rating())
+                .originalLanguage(dto.originalLanguage())
+                .build();
+
+        // Resolve genres from the in-memory dictionary; the references carry only the id
+        if (dto.genreIds() != null && !dto.genreIds().isEmpty()) {
+            GenreDictionary dictionary = GenreDictionary.get(emf);
+            Set<Genre> genres = new HashSet<>();
+            for (Integer genreId : dto.genreIds()) {
+                GenreDictionary.Entry genre = genreId == null ? null : dictionary.byId(genreId).orElse(null);
+                if (genre == null) {
+                    throw ApiException.badRequest("Genre with ID " + genreId + " not found");
                 }
-                movie.setGenres(genres);
+                genres.add(genre.toReference());
             }
-
-            return movie;
-        } catch (RuntimeException e) {
-            throw ApiException.serverError("Failed to convert DTO to entity: " + e.getMessage());
+            movie.setGenres(genres);
         }
+
+        return movie;
     }
 
     @Override
@@ -91,6 +138,47 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
         }
     }
 
+    // ===========================================
+    // READ METHODS - projected straight into MovieDTO, see MovieDAO
+    // ===========================================
+
+    @Override
+    public List<MovieDTO> getAll() {
+        try {
+            return movieDAO.findAllDTOs();
+        } catch (Exception e) {
+            throw ApiException.serverError("Failed to retrieve all entities: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Page<MovieDTO> getPage(PageRequest request) {
+        if (request == null) {
+            throw ApiException.badRequest("Page request cannot be null");
+        }
+
+        try {
+            return movieDAO.findDTOPage(request);
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest(e.getMessage());
+        } catch (Exception e) {
+            throw ApiException.serverError("Failed to retrieve page of movies: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<MovieDTO> getById(Integer id) {
+        if (id == null) {
+            throw ApiException.badRequest("ID cannot be null");
+        }
+
+        try {
+            return movieDAO.findDTOById(id);
+        } catch (Exception e) {
+            throw ApiException.serverError("Failed to retrieve entity with ID " + id + ": " + e.getMessage());
+        }
+    }
+
     // ===========================================
     // BUSINESS-SPECIFIC METHODS
     // ===========================================
@@ -104,9 +192,7 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
         }
 
         try {
-            return movieDAO.findByTitle(title).stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            return movieDAO.findDTOsByTitle(title);
         } catch (Exception e) {
             throw ApiException.serverError("Failed to search movies by title: " + e.getMessage());
         }
@@ -121,9 +207,7 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
         }
 
         try {
-            return movieDAO.findByDirectorId(directorId).stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+            return movieDAO.findDTOsByDirectorId(directorId);
         } catch (Exception e) {
             throw ApiException.serverError("Failed to get movies by director: " + e.getMessage());
         }
@@ -139,19 +223,10 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
             params.put("vote_average.gte", String.valueOf(min));
             params.put("vote_average.lte", String.valueOf(max));
 
-            // Deserialize into ResponseDTO with raw LinkedHashMap
-            ResponseDTO<?> response = makeApiRequestWithParams("/discover/movie", params, ResponseDTO.class);
+            List<MovieDTO> dtos = new ArrayList<>();
+            ResponseDTO<MovieDTO> response = streamPagedResults("/discover/movie", params, MovieDTO.class, dtos::add);
 
-            if (response != null && response.results() != null) {
-                // Convert List<LinkedHashMap> to List<MovieDTO>
-                List<MovieDTO> dtos = objectMapper.convertValue(
-                        response.results(),
-                        new TypeReference<List<MovieDTO>>() {}
-                );
-                return dtos;
-            } else {
-                return Collections.emptyList();
-            }
+            return response != null ? dtos : Collections.emptyList();
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyList();
@@ -159,189 +234,692 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
     }
 
 
-    private void setGenresForMovie(Movie movie, Set<Integer> genreIds, EntityManager em) {
-        if (genreIds != null && !genreIds.isEmpty()) {
-            for (Integer genreId : genreIds) {
-                TypedQuery<Genre> query = em.createQuery(
-                        "SELECT g FROM Genre g WHERE g.tmdbId = :tmdbId", Genre.class);
-                query.setParameter("tmdbId", genreId);
-                List<Genre> existingGenres = query.getResultList();
+    /**
+     * Fetch Danish movies released in the last 5 years from external API
+     * and store/update them in the local database.
+     * An interrupted run is resumed from its checkpoint journal.
+     * @return true if every page was stored
+     */
+    public boolean fetchDanishMovies() {
+        LocalDate fiveYearsAgo = LocalDate.now().minusYears(5);
+        LocalDate now = LocalDate.now();
+
+        Map<String, String> params = new HashMap<>();
+        params.put("with_original_language", "da");
+
+        return crawlDiscover(DANISH_MOVIES_JOB, params, fiveYearsAgo, now);
+    }
+
+    /**
+     * Forget the progress of earlier ingestion runs, e.g. because the schema was recreated
+     */
+    public void resetCheckpoints() {
+        for (String job : List.of(DANISH_MOVIES_JOB, MOVIE_CAST_JOB, SYNC_CAST_JOB)) {
+            CheckpointJournal.reset(checkpointFile(job));
+        }
+    }
+
+    /**
+     * Cold-start import of the Danish movies of the last 5 years and their cast through the
+     * COPY based BulkLoader instead of the ORM. The crawl and the credit fetches use the same
+     * pipelines as the regular import, but their sinks only stage rows; everything is merged
+     * into the real tables at the end.
+     * @return true if every page and the cast of every movie were staged; otherwise the staged
+     *         rows are incomplete and should not be merged
+     */
+    public boolean bulkLoadDanishMovies(BulkLoader loader) {
+        Map<String, String> params = new HashMap<>();
+        params.put("with_original_language", "da");
+
+        List<DiscoverShard> shards = new ArrayList<>();
+        if (!planShards(params, LocalDate.now().minusYears(5), LocalDate.now(), shards)) {
+            System.err.println("Could not plan the discover shards, nothing was staged");
+            return false;
+        }
+        List<PageTask> tasks = new ArrayList<>();
+        for (DiscoverShard shard : shards) {
+            for (int page = 1; page <= shard.totalPages(); page++) {
+                tasks.add(new PageTask(shard, page));
+            }
+        }
+
+        int discoverThreads = Utils.getIntPropertyValue("DISCOVER_CONCURRENCY", "config.properties", 4);
+        int fetchThreads = Utils.getIntPropertyValue("CREDITS_CONCURRENCY", "config.properties", 8);
+        int decodeThreads = Utils.getIntPropertyValue("DECODE_CONCURRENCY", "config.properties", 2);
+        int resolveThreads = Utils.getIntPropertyValue("RESOLVE_CONCURRENCY", "config.properties", 1);
+        Set<Integer> seenTmdbIds = new HashSet<>();
+        List<Movie> stagedMovies = new ArrayList<>();
+
+        try {
+            Pipeline.Report discoverReport = Pipeline.<PageTask>named("discover-bulk", PIPELINE_QUEUE_CAPACITY)
+                    .stage("fetch", discoverThreads, this::fetchDiscoverPage)
+                    .stage("dedupe", 1, page -> dedupe(page, seenTmdbIds))
+                    .sink("stage", 1, page -> {
+                        loader.addMovies(page.movies());
+                        for (MovieDTO movieDTO : page.movies()) {
+                            stagedMovies.add(Movie.builder().tmdbId(movieDTO.id()).title(movieDTO.title()).build());
+                        }
+                    })
+                    .reportEvery(PIPELINE_REPORT_INTERVAL)
+                    .run(tasks);
+            printReport(discoverReport);
+
+            Pipeline.Report castReport = Pipeline.<Movie>named("movie-cast-bulk", PIPELINE_QUEUE_CAPACITY)
+                    .stage("fetch", fetchThreads, movie -> fetchCredits(movie, gone -> { }))
+                    .stage("decode", decodeThreads, this::decodeCredits)
+                    .stage("resolve", resolveThreads, this::resolveCast)
+                    .sink("stage", 1, item -> loader.addCredits(item.movie().getTmdbId(), item.actors(), item.directors()))
+                    .reportEvery(PIPELINE_REPORT_INTERVAL)
+                    .run(stagedMovies);
+            printReport(castReport);
+            return discoverReport.failures().isEmpty() && castReport.failures().isEmpty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ApiException.serverError("Interrupted while bulk loading movies");
+        }
+    }
+
+    private static Path checkpointFile(String job) {
+        return CHECKPOINT_DIR.resolve(job + ".journal");
+    }
 
-                if (!existingGenres.isEmpty()) {
-                    Genre genre = existingGenres.get(0);
-                    movie.addGenre(genre);
-                    System.out.println("Added genre " + genre.getGenreName() + " to movie " + movie.getTitle());
+    /**
+     * Crawl every result of a /discover/movie query released between from and to.
+     * The date range is split into shards that each fit under TMDB's page cap, then the
+     * pages of all shards run through a pipeline: fetch + streaming decode (DISCOVER_CONCURRENCY),
+     * dedupe across shards, and a writer that stores DISCOVER_WRITE_BATCH_PAGES pages per
+     * transaction. Movies that show up in more than one shard are written once.
+     * The shard plan and every stored page are recorded in the job's checkpoint journal, so a
+     * restarted crawl keeps the original plan and only fetches the pages that are missing.
+     * @return true if every page was stored (the journal is then removed)
+     */
+    private boolean crawlDiscover(String job, Map<String, String> baseParams, LocalDate from, LocalDate to) {
+        try (CheckpointJournal journal = CheckpointJournal.open(checkpointFile(job))) {
+            List<DiscoverShard> shards = restoreShards(journal, baseParams);
+            boolean planned = !shards.isEmpty();
+            if (planned) {
+                System.out.println("Resuming " + job + ": " + shards.size() + " shard(s), "
+                        + (journal.size() - shards.size()) + " page(s) already stored");
+            } else {
+                planned = planShards(baseParams, from, to, shards);
+                if (planned) {
+                    // Only a complete plan is worth keeping; otherwise the next run plans again
+                    shards.forEach(shard -> journal.markDone(shardKey(shard)));
+                }
+            }
+            if (shards.isEmpty()) {
+                return false;
+            }
+            System.out.println("Crawling discover results in " + shards.size() + " date shard(s)");
+
+            List<PageTask> tasks = new ArrayList<>();
+            for (DiscoverShard shard : shards) {
+                for (int page = 1; page <= shard.totalPages(); page++) {
+                    PageTask task = new PageTask(shard, page);
+                    if (!journal.isDone(pageKey(task.shard().label(), task.page()))) {
+                        tasks.add(task);
+                    }
                 }
             }
+
+            int concurrency = Utils.getIntPropertyValue("DISCOVER_CONCURRENCY", "config.properties", 4);
+            int batchPages = Utils.getIntPropertyValue("DISCOVER_WRITE_BATCH_PAGES", "config.properties", 5);
+            Set<Integer> seenTmdbIds = new HashSet<>();
+            ChangeCounter movieChanges = new ChangeCounter("movies");
+
+            Pipeline.Report report = Pipeline.<PageTask>named("discover", PIPELINE_QUEUE_CAPACITY)
+                    .stage("fetch", concurrency, this::fetchDiscoverPage)
+                    .stage("dedupe", 1, page -> dedupe(page, seenTmdbIds))
+                    .batchSink("persist", batchPages, pages -> {
+                        try (EntityManager em = emf.createEntityManager()) {
+                            writePages(em, pages, journal, movieChanges);
+                        }
+                    })
+                    .reportEvery(PIPELINE_REPORT_INTERVAL)
+                    .run(tasks);
+            printReport(report);
+            System.out.println(movieChanges);
+
+            boolean finished = planned && tasks.stream()
+                    .allMatch(task -> journal.isDone(pageKey(task.shard().label(), task.page())));
+            if (finished) {
+                journal.complete();
+            } else {
+                System.err.println(job + " is incomplete; run it again to resume from " + checkpointFile(job));
+            }
+            return finished;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ApiException.serverError("Interrupted while fetching discover pages");
+        }
+    }
+
+    private DiscoverPage fetchDiscoverPage(PageTask task) {
+        // After a resume the shard plan comes from the journal and page 1 was not fetched yet
+        DiscoverPage page = task.page() == 1 && task.shard().firstPage() != null
+                ? task.shard().firstPage()
+                : fetchDiscoverPage(task.shard().label(), task.shard().params(), task.page());
+        if (page.movies() == null) {
+            throw new IllegalStateException("no results returned");
+        }
+        return page;
+    }
+
+    /**
+     * Split [from, to] in half until every shard has no more than MAX_DISCOVER_PAGES pages.
+     * The first page fetched while probing a shard is kept so it is not requested twice.
+     * @return false if a shard could not be probed and is missing from the plan
+     */
+    private boolean planShards(Map<String, String> baseParams, LocalDate from, LocalDate to, List<DiscoverShard> shards) {
+        Map<String, String> params = shardParams(baseParams, from, to);
+        String label = from + ".." + to;
+
+        DiscoverPage firstPage = fetchDiscoverPage(label, params, 1);
+        if (firstPage.movies() == null) {
+            System.err.println("Failed to process page 1 of " + label);
+            return false;
+        }
+
+        int totalPages = firstPage.totalPages() != null ? firstPage.totalPages() : 1;
+        if (totalPages > MAX_DISCOVER_PAGES && from.isBefore(to)) {
+            LocalDate middle = from.plusDays(ChronoUnit.DAYS.between(from, to) / 2);
+            boolean first = planShards(baseParams, from, middle, shards);
+            boolean second = planShards(baseParams, middle.plusDays(1), to, shards);
+            return first && second;
+        }
+
+        if (totalPages > MAX_DISCOVER_PAGES) {
+            System.err.println("Discover shard " + label + " has " + totalPages
+                    + " pages; only the first " + MAX_DISCOVER_PAGES + " can be fetched");
         }
+        shards.add(new DiscoverShard(label, params, firstPage, Math.min(totalPages, MAX_DISCOVER_PAGES)));
+        return true;
     }
 
+    private static Map<String, String> shardParams(Map<String, String> baseParams, LocalDate from, LocalDate to) {
+        Map<String, String> params = new HashMap<>(baseParams);
+        params.put("primary_release_date.gte", from.toString());
+        params.put("primary_release_date.lte", to.toString());
+        return params;
+    }
 
     /**
-     * Fetch Danish movies released in the last 5 years from external API
-     * and store/update them in the local database
+     * Rebuild the shard plan recorded by an earlier run of the crawl, oldest shard first
+     */
+    private static List<DiscoverShard> restoreShards(CheckpointJournal journal, Map<String, String> baseParams) {
+        List<DiscoverShard> shards = new ArrayList<>();
+        for (String entry : journal.entries()) {
+            String[] parts = entry.split(" ");
+            if (parts.length == 4 && parts[0].equals("shard")) {
+                LocalDate from = LocalDate.parse(parts[1]);
+                LocalDate to = LocalDate.parse(parts[2]);
+                shards.add(new DiscoverShard(from + ".." + to, shardParams(baseParams, from, to),
+                        null, Integer.parseInt(parts[3])));
+            }
+        }
+        shards.sort(Comparator.comparing(DiscoverShard::label));
+        return shards;
+    }
+
+    // Journal entry "shard <from> <to> <totalPages>"
+    private static String shardKey(DiscoverShard shard) {
+        return "shard " + shard.label().replace("..", " ") + " " + shard.totalPages();
+    }
+
+    // Journal entry "page <from>..<to> <page>"
+    private static String pageKey(String shardLabel, int page) {
+        return "page " + shardLabel + " " + page;
+    }
+
+    private DiscoverPage fetchDiscoverPage(String shard, Map<String, String> shardParams, int page) {
+        Map<String, String> params = new HashMap<>(shardParams);
+        params.put("page", String.valueOf(page));
+
+        List<MovieDTO> movies = new ArrayList<>();
+        ResponseDTO<MovieDTO> response = streamPagedResults("/discover/movie", params, MovieDTO.class, movies::add);
+
+        return response != null
+                ? new DiscoverPage(shard, page, movies, response.totalPages())
+                : new DiscoverPage(shard, page, null, null);
+    }
+
+    /**
+     * Runs as a single-threaded stage on purpose: the stage owns seenTmdbIds, a plain HashSet, and
+     * deciding which page keeps a movie seen in two shards has to be one check-and-add. The work is
+     * one set lookup per movie, so more threads would only add locking.
+     */
+    private DiscoverPage dedupe(DiscoverPage page, Set<Integer> seenTmdbIds) {
+        List<MovieDTO> unseen = page.movies().stream()
+                .filter(movie -> seenTmdbIds.add(movie.id()))
+                .collect(Collectors.toList());
+        return new DiscoverPage(page.shard(), page.page(), unseen, page.totalPages());
+    }
+
+    /**
+     * Write a batch of pages in one transaction with a single movie upsert and a single
+     * genre link statement. If the batch fails it is rolled back
+     * and every page is retried on its own, so one bad page cannot sink the others.
+     * Pages are checkpointed once their transaction has committed.
      */
-    public void fetchDanishMovies() {
-        try (EntityManager em = emf.createEntityManager()) {
+    private void writePages(EntityManager em, List<DiscoverPage> pages, CheckpointJournal journal,
+                            ChangeCounter movieChanges) {
+        if (pages.isEmpty()) {
+            return;
+        }
+
+        em.getTransaction().begin();
+        try {
+            List<MovieDTO> movieDTOs = pages.stream()
+                    .flatMap(page -> page.movies().stream())
+                    .collect(Collectors.toList());
+            UpsertResult stored = storeMovies(em, movieDTOs);
+            em.getTransaction().commit();
+            em.clear();
+            movieChanges.record(stored.changed(), stored.unchanged());
+            pages.forEach(page -> journal.markDone(pageKey(page.shard(), page.page())));
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+
+            if (pages.size() == 1) {
+                DiscoverPage page = pages.get(0);
+                System.err.println("Failed to process page " + page.page() + " of " + page.shard() + ": " + e.getMessage());
+            } else {
+                for (DiscoverPage page : pages) {
+                    writePages(em, List.of(page), journal, movieChanges);
+                }
+            }
+        }
+    }
+
+    private record DiscoverPage(String shard, int page, List<MovieDTO> movies, Integer totalPages) {
+        @Override
+        public String toString() {
+            return "page " + page + " of " + shard;
+        }
+    }
+
+    private record DiscoverShard(String label, Map<String, String> params, DiscoverPage firstPage, int totalPages) {}
+
+    /**
+     * Upsert the movies and link them to their genres. Movies whose source hash is unchanged
+     * are skipped, genre links included.
+     */
+    private UpsertResult storeMovies(EntityManager em, List<MovieDTO> movieDTOs) {
+        List<Movie> movies = movieDTOs.stream()
+                .map(movieDTO -> Movie.builder()
+                        .tmdbId(movieDTO.id())
+                        .title(movieDTO.title())
+                        .rating(movieDTO.rating())
+                        .releaseDate(movieDTO.releaseDate())
+                        .originalLanguage(movieDTO.originalLanguage())
+                        .sourceHash(movieDTO.sourceHash())
+                        .build())
+                .collect(Collectors.toList());
+        UpsertResult stored = movieDAO.upsertAll(em, movies);
+        List<MovieDTO> written = movieDTOs.stream()
+                .filter(movieDTO -> stored.isWritten(movieDTO.id()))
+                .collect(Collectors.toList());
+
+        // Genre ids come from the genre dictionary, refreshed by GenreService.fetchAllGenres
+        GenreDictionary genres = GenreDictionary.get(emf);
+        Map<Integer, Set<Integer>> genreIdsByMovieId = new HashMap<>();
+        for (MovieDTO movieDTO : written) {
+            if (movieDTO.genreIds() == null) {
+                continue;
+            }
+            Set<Integer> genreIds = genreIdsByMovieId.computeIfAbsent(stored.ids().get(movieDTO.id()), id -> new HashSet<>());
+            for (Integer genreTmdbId : movieDTO.genreIds()) {
+                genres.byTmdbId(genreTmdbId).ifPresent(genre -> genreIds.add(genre.id()));
+            }
+        }
+        movieDAO.addGenres(em, genreIdsByMovieId);
+
+        System.out.println("Stored " + stored.changed() + " movies, " + stored.unchanged() + " unchanged");
+        return stored;
+    }
+
+
+    /**
+     * Incremental sync: refresh only the local movies (and their credits) that TMDB reports
+     * as changed since the last run. Without a watermark the full import is run instead.
+     * Needs a schema that survives restarts, see HibernateConfig.setSchemaAction.
+     */
+    public void syncChangedMovies() {
+        LocalDate syncStart = LocalDate.now();
+        Optional<SyncWatermark> watermark = watermarkDAO.findById(MOVIE_SYNC_JOB);
+
+        boolean finished;
+        if (watermark.isEmpty()) {
+            System.out.println("No sync watermark found, running full import");
+            boolean moviesStored = fetchDanishMovies();
+            finished = fetchMovieCast() && moviesStored;
+        } else {
+            LocalDate since = watermark.get().getLastSyncedOn();
+            Set<Integer> changedIds = fetchChangedMovieIds(since, syncStart);
+            List<Movie> changedMovies = movieDAO.findByTmdbIds(changedIds);
+            System.out.println(changedIds.size() + " movies changed on TMDB since " + since
+                    + ", " + changedMovies.size() + " of them are stored locally");
+
+            // The journal only holds movies stored for this changes window; a new window starts over,
+            // otherwise a movie stored by an earlier, unfinished window would skip its newer changes
+            String window = "window " + since + ".." + syncStart;
+            boolean resumable;
+            try (CheckpointJournal journal = CheckpointJournal.open(checkpointFile(SYNC_CAST_JOB))) {
+                resumable = journal.isDone(window);
+            }
+            if (!resumable) {
+                CheckpointJournal.reset(checkpointFile(SYNC_CAST_JOB));
+                try (CheckpointJournal journal = CheckpointJournal.open(checkpointFile(SYNC_CAST_JOB))) {
+                    journal.markDone(window);
+                }
+            }
+
+            // Cached details and credits of these movies are out of date now
+            for (Movie movie : changedMovies) {
+                expireCachedResponse("/movie/" + movie.getTmdbId(), Map.of(APPEND_TO_RESPONSE, "credits"));
+            }
+
+            finished = fetchMovieCast(SYNC_CAST_JOB, changedMovies, true);
+        }
+
+        // Keep the old watermark until everything is stored; the next run resumes from the journals
+        if (!finished) {
+            System.err.println("Sync incomplete, the watermark was not moved");
+            return;
+        }
+        watermarkDAO.update(SyncWatermark.builder()
+                .id(MOVIE_SYNC_JOB)
+                .lastSyncedOn(syncStart)
+                .build());
+    }
+
+    /**
+     * Collect the ids from /movie/changes between from and to. TMDB accepts at most
+     * 14 days per query, so longer periods are walked in windows.
+     */
+    private Set<Integer> fetchChangedMovieIds(LocalDate from, LocalDate to) {
+        Set<Integer> changedIds = new HashSet<>();
+        LocalDate windowStart = from;
+
+        while (!windowStart.isAfter(to)) {
+            LocalDate windowEnd = windowStart.plusDays(MAX_CHANGES_WINDOW_DAYS - 1);
+            if (windowEnd.isAfter(to)) {
+                windowEnd = to;
+            }
+
             int page = 1;
             int totalPages = 1;
-            LocalDate fiveYearsAgo = LocalDate.now().minusYears(5);
-            LocalDate now = LocalDate.now();
-
             while (page <= totalPages) {
                 Map<String, String> params = new HashMap<>();
-                params.put("with_original_language", "da");
-                params.put("primary_release_date.gte", fiveYearsAgo.toString());
-                params.put("primary_release_date.lte", now.toString());
+                params.put("start_date", windowStart.toString());
+                params.put("end_date", windowEnd.toString());
                 params.put("page", String.valueOf(page));
 
-                ResponseDTO response = makeApiRequestWithParams("/discover/movie", params, ResponseDTO.class);
-
-                if (response != null && response.results() != null) {
-                    em.getTransaction().begin();
-                    try {
-                        for (Object movieObj : response.results()) {
-                            MovieDTO movieDTO = objectMapper.convertValue(movieObj, MovieDTO.class);
-
-                            TypedQuery<Movie> query = em.createQuery(
-                                    "SELECT m FROM Movie m WHERE m.tmdbId = :tmdbId", Movie.class);
-                            query.setParameter("tmdbId", movieDTO.id());
-                            List<Movie> existingMovies = query.getResultList();
-
-                            Movie movie;
-                            if (existingMovies.isEmpty()) {
-                                movie = Movie.builder()
-                                        .tmdbId(movieDTO.id())
-                                        .title(movieDTO.title())
-                                        .rating(movieDTO.rating())
-                                        .releaseDate(movieDTO.releaseDate())
-                                        .originalLanguage(movieDTO.originalLanguage())
-                                        .build();
-                                em.persist(movie);
-                                System.out.println("Created new movie: " + movie.getTitle());
-                            } else {
-                                movie = existingMovies.get(0);
-                                movie.setTitle(movieDTO.title());
-                                movie.setReleaseDate(movieDTO.releaseDate());
-                                movie.setRating(movieDTO.rating());
-                                movie.setOriginalLanguage(movieDTO.originalLanguage());
-                                movie = em.merge(movie);
-                                System.out.println("Updated existing movie: " + movie.getTitle());
-                            }
-
-                            // Set genres for the movie
-                            setGenresForMovie(movie, movieDTO.genreIds(), em);
-                        }
-                        em.getTransaction().commit();
-                        totalPages = response.totalPages();
-                    } catch (Exception e) {
-                        em.getTransaction().rollback();
-                        System.err.println("Failed to process page " + page + ": " + e.getMessage());
-                        e.printStackTrace();
-                    }
+                ResponseDTO<ChangeDTO> response = streamPagedResults("/movie/changes", params, ChangeDTO.class,
+                        change -> changedIds.add(change.id()));
+                if (response == null) {
+                    throw ApiException.serverError("Failed to fetch movie changes for " + windowStart + ".." + windowEnd);
+                }
+                if (response.totalPages() != null) {
+                    totalPages = response.totalPages();
                 }
                 page++;
             }
+            windowStart = windowEnd.plusDays(1);
         }
+        return changedIds;
     }
 
+    /**
+     * Fetch a movie's details together with extra sub-resources (e.g. "credits", "keywords",
+     * "release_dates") in a single request using TMDB's append_to_response
+     * @throws TmdbNotFoundException if TMDB has no movie with this id
+     */
+    public MovieDetailsDTO fetchMovieDetails(int tmdbId, String... appendToResponse) {
+        Map<String, String> params = new HashMap<>();
+        if (appendToResponse.length > 0) {
+            params.put(APPEND_TO_RESPONSE, String.join(",", appendToResponse));
+        }
+        return makeApiRequestWithParams("/movie/" + tmdbId, params, MovieDetailsDTO.class);
+    }
 
-    public void fetchMovieCast() {
-        try (EntityManager em = emf.createEntityManager()) {
-            List<Movie> localMovies = movieDAO.findAll();
-
-            for (Movie movie : localMovies) {
-                String endpoint = "/movie/" + movie.getTmdbId() + "/credits";
-                CreditsDTO credits = makeApiRequest(endpoint, CreditsDTO.class);
-
-                if (credits != null) {
-                    em.getTransaction().begin();
-                    try {
-                        Movie managedMovie = em.merge(movie);
-
-                        // Process actors
-                        if (credits.cast() != null) {
-                            for (ActorDTO actorDTO : credits.cast()) {
-                                TypedQuery<Actor> query = em.createQuery(
-                                        "SELECT a FROM Actor a WHERE a.tmdbId = :tmdbId", Actor.class);
-                                query.setParameter("tmdbId", actorDTO.id());
-                                List<Actor> existingActors = query.getResultList();
-
-                                Actor actor;
-                                if (existingActors.isEmpty()) {
-                                    actor = Actor.builder()
-                                            .tmdbId(actorDTO.id())
-                                            .name(actorDTO.name())
-                                            .age(0)
-                                            .build();
-                                    em.persist(actor);
-                                    System.out.println("Added new actor: " + actor.getName());
-                                } else {
-                                    actor = existingActors.get(0);
-                                    actor.setName(actorDTO.name());
-                                    actor = em.merge(actor);
-                                }
-
-                                if (!managedMovie.getActors().contains(actor)) {
-                                    managedMovie.addActor(actor);
-                                }
-                            }
-                        }
+    /**
+     * Fetch credits for every local movie concurrently and store the cast and director.
+     * A failing movie is reported and skipped without aborting the run.
+     * Movies whose cast was stored by an interrupted earlier run are skipped.
+     * @return true if the cast of every movie was stored
+     */
+    public boolean fetchMovieCast() {
+        return fetchMovieCast(MOVIE_CAST_JOB, movieDAO.findAll(), false);
+    }
+
+    /**
+     * Details and credits arrive in one request per movie and run through a pipeline:
+     * fetch (CREDITS_CONCURRENCY), decode (DECODE_CONCURRENCY), resolve the cast (RESOLVE_CONCURRENCY), and
+     * persist (PERSIST_CONCURRENCY). With refreshDetails the movie row itself is updated
+     * from the same response. Every stored movie is checkpointed by tmdbId in the job's journal,
+     * and so is every movie TMDB answers 404 for: it was deleted there and asking again will not help.
+     * @return true if the cast of every movie was stored (the journal is then removed)
+     */
+    private boolean fetchMovieCast(String job, List<Movie> localMovies, boolean refreshDetails) {
+        int fetchThreads = Utils.getIntPropertyValue("CREDITS_CONCURRENCY", "config.properties", 8);
+        int decodeThreads = Utils.getIntPropertyValue("DECODE_CONCURRENCY", "config.properties", 2);
+        int resolveThreads = Utils.getIntPropertyValue("RESOLVE_CONCURRENCY", "config.properties", 1);
+        int persistThreads = Utils.getIntPropertyValue("PERSIST_CONCURRENCY", "config.properties", 1);
+        try (CheckpointJournal journal = CheckpointJournal.open(checkpointFile(job))) {
+            List<Movie> pending = localMovies.stream()
+                    .filter(movie -> !journal.isDone(String.valueOf(movie.getTmdbId())))
+                    .collect(Collectors.toList());
+            if (pending.size() < localMovies.size()) {
+                System.out.println("Resuming " + job + ": cast of " + (localMovies.size() - pending.size())
+                        + " movie(s) already stored");
+            }
+
+            CreditChanges changes = new CreditChanges(new ChangeCounter("movies"), new ChangeCounter("credits"),
+                    new ChangeCounter("people"));
+            AtomicInteger goneMovies = new AtomicInteger();
 
-                        // Process directors
-                        if (credits.crew() != null) {
-                            for (DirectorDTO directorDTO : credits.crew()) {
-                                if (isDirector(directorDTO)) {
-                                    TypedQuery<Director> query = em.createQuery(
-                                            "SELECT d FROM Director d WHERE d.tmdbId = :tmdbId", Director.class);
-                                    query.setParameter("tmdbId", directorDTO.id());
-                                    List<Director> existingDirectors = query.getResultList();
-
-                                    Director director;
-                                    if (existingDirectors.isEmpty()) {
-                                        director = Director.builder()
-                                                .tmdbId(directorDTO.id())
-                                                .name(directorDTO.name())
-                                                .job(directorDTO.job())
-                                                .build();
-                                        em.persist(director);
-                                        System.out.println("Added new director: " + director.getName());
-                                    } else {
-                                        director = existingDirectors.get(0);
-                                        director.setName(directorDTO.name());
-                                        director.setJob(directorDTO.job());
-                                        director = em.merge(director);
-                                    }
-
-                                    managedMovie.setDirector(director);
-                                }
-                            }
+            Pipeline.Report report = Pipeline.<Movie>named("movie-cast", PIPELINE_QUEUE_CAPACITY)
+                    .stage("fetch", fetchThreads, movie -> fetchCredits(movie, gone -> {
+                        journal.markDone(String.valueOf(gone.getTmdbId()));
+                        goneMovies.incrementAndGet();
+                    }))
+                    .stage("decode", decodeThreads, this::decodeCredits)
+                    .stage("resolve", resolveThreads, this::resolveCast)
+                    .sink("persist", persistThreads, item -> {
+                        try (EntityManager em = emf.createEntityManager()) {
+                            saveCredits(em, item, refreshDetails, changes);
                         }
+                        journal.markDone(String.valueOf(item.movie().getTmdbId()));
+                    })
+                    .reportEvery(PIPELINE_REPORT_INTERVAL)
+                    .run(pending);
 
-                        em.getTransaction().commit();
-                        System.out.println("Successfully processed cast for movie: " + movie.getTitle());
+            long persisted = report.stages().get(report.stages().size() - 1).processed();
+            System.out.println("Processed cast for " + persisted + " of " + pending.size() + " movies"
+                    + (goneMovies.get() > 0 ? ", " + goneMovies.get() + " no longer exist on TMDB" : ""));
+            printReport(report);
+            System.out.println(refreshDetails ? changes : changes.credits() + ", " + changes.people());
 
-                    } catch (Exception e) {
-                        em.getTransaction().rollback();
-                        System.err.println("Failed to process cast for movie " + movie.getTitle() + ": " + e.getMessage());
-                    }
+            // Movies TMDB no longer has are journaled as done, so only failures worth retrying remain here
+            boolean finished = report.failures().isEmpty();
+            if (finished) {
+                journal.complete();
+            } else {
+                System.err.println(job + " is incomplete; run it again to resume from " + checkpointFile(job));
+            }
+            return finished;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ApiException.serverError("Interrupted while fetching movie cast");
+        }
+    }
+
+    /**
+     * A movie deleted on TMDB is handed to onGone and dropped from the pipeline instead of failing
+     */
+    private CastItem fetchCredits(Movie movie, Consumer<Movie> onGone) {
+        byte[] body;
+        try {
+            body = fetchApiBody("/movie/" + movie.getTmdbId(), Map.of(APPEND_TO_RESPONSE, "credits"));
+        } catch (TmdbNotFoundException e) {
+            System.out.println("Skipping " + movie.getTitle() + " (tmdbId " + movie.getTmdbId()
+                    + "), it no longer exists on TMDB");
+            onGone.accept(movie);
+            return null;
+        }
+        if (body == null) {
+            throw new IllegalStateException("no credits returned");
+        }
+        return new CastItem(movie, body, null, null, null);
+    }
+
+    private CastItem decodeCredits(CastItem item) {
+        try {
+            MovieDetailsDTO details = objectMapper.readValue(item.body(), MovieDetailsDTO.class);
+            if (details.credits() == null) {
+                throw new IllegalStateException("no credits returned");
+            }
+            return new CastItem(item.movie(), null, details, null, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drop repeated cast entries (an actor can play several characters) and keep only directing crew
+     */
+    private CastItem resolveCast(CastItem item) {
+        CreditsDTO credits = item.details().credits();
+
+        Map<Integer, ActorDTO> actors = new LinkedHashMap<>();
+        if (credits.cast() != null) {
+            for (ActorDTO actorDTO : credits.cast()) {
+                actors.putIfAbsent(actorDTO.id(), actorDTO);
+            }
+        }
+
+        Map<Integer, DirectorDTO> directors = new LinkedHashMap<>();
+        if (credits.crew() != null) {
+            for (DirectorDTO directorDTO : credits.crew()) {
+                if (isDirector(directorDTO)) {
+                    directors.putIfAbsent(directorDTO.id(), directorDTO);
                 }
             }
         }
+
+        return new CastItem(item.movie(), null, item.details(),
+                new ArrayList<>(actors.values()), new ArrayList<>(directors.values()));
     }
 
-    public void printMoviesWithGenres() {
-        try (EntityManager em = emf.createEntityManager()) {
-            TypedQuery<Movie> query = em.createQuery(
-                    "SELECT DISTINCT m FROM Movie m LEFT JOIN FETCH m.genres", Movie.class);
-            List<Movie> movies = query.getResultList();
-
-            for (Movie movie : movies) {
-                System.out.println("\nMovie: " + movie.getTitle());
-                System.out.println("Genres: " + movie.getGenres().stream()
-                        .map(Genre::getGenreName)
-                        .collect(Collectors.joining(", ")));
+    private void printReport(Pipeline.Report report) {
+        System.out.println(report);
+        if (!report.failures().isEmpty()) {
+            System.err.println(report.failures().size() + " item(s) failed in " + report.pipeline() + ":");
+            report.failures().forEach(failure -> System.err.println("  " + failure));
+        }
+    }
+
+    /**
+     * Store one movie's cast and director in one transaction: one upsert per table and
+     * one statement per link table, whatever the size of the cast. If the credits hash equals
+     * the one stored with the movie nothing is written, and people whose source hash is
+     * unchanged are skipped by the upserts.
+     */
+    private void saveCredits(EntityManager em, CastItem item, boolean refreshDetails, CreditChanges changes) {
+        Movie movie = item.movie();
+        long creditsHash = CreditsDTO.hashOf(item.actors(), item.directors());
+
+        em.getTransaction().begin();
+        try {
+            UpsertResult storedMovie = refreshDetails ? storeMovies(em, List.of(item.details().toMovieDTO())) : null;
+            Integer movieId = storedMovie != null ? storedMovie.ids().get(movie.getTmdbId()) : movie.getId();
+
+            boolean creditsChanged = !Objects.equals(movie.getCreditsHash(), creditsHash);
+            UpsertResult storedActors = null;
+            UpsertResult storedDirectors = null;
+            if (creditsChanged) {
+                List<Actor> actors = item.actors().stream()
+                        .map(actorDTO -> Actor.builder()
+                                .tmdbId(actorDTO.id())
+                                .name(actorDTO.name())
+                                .age(0)
+                                .sourceHash(actorDTO.sourceHash())
+                                .build())
+                        .collect(Collectors.toList());
+                storedActors = actorDAO.upsertAll(em, actors);
+                movieDAO.addActors(em, movieId, storedActors.ids().values());
+
+                List<Director> directors = item.directors().stream()
+                        .map(directorDTO -> Director.builder()
+                                .tmdbId(directorDTO.id())
+                                .name(directorDTO.name())
+                                .job(directorDTO.job())
+                                .sourceHash(directorDTO.sourceHash())
+                                .build())
+                        .collect(Collectors.toList());
+                storedDirectors = directorDAO.upsertAll(em, directors);
+                if (!directors.isEmpty()) {
+                    // A movie has one director; with several credited the last one wins
+                    movieDAO.setDirector(em, movieId,
+                            storedDirectors.ids().get(directors.get(directors.size() - 1).getTmdbId()));
+                }
+                movieDAO.setCreditsHash(em, movieId, creditsHash);
+            }
+
+            em.getTransaction().commit();
+
+            if (storedMovie != null) {
+                changes.movies().record(storedMovie.changed(), storedMovie.unchanged());
+            }
+            if (creditsChanged) {
+                changes.credits().record(1, 0);
+                changes.people().record(storedActors.changed() + storedDirectors.changed(),
+                        storedActors.unchanged() + storedDirectors.unchanged());
+                System.out.println("Successfully processed cast for movie: " + movie.getTitle());
+            } else {
+                changes.credits().record(0, 1);
+            }
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
             }
+            throw e;
+        }
+    }
+
+    private record CreditChanges(ChangeCounter movies, ChangeCounter credits, ChangeCounter people) {
+        @Override
+        public String toString() {
+            return movies + ", " + credits + ", " + people;
+        }
+    }
+
+    private record PageTask(DiscoverShard shard, int page) {
+        @Override
+        public String toString() {
+            return "page " + page + " of " + shard.label();
+        }
+    }
+
+    // Carries one movie through the cast pipeline; each stage fills in the next part
+    private record CastItem(Movie movie, byte[] body, MovieDetailsDTO details,
+                            List<ActorDTO> actors, List<DirectorDTO> directors) {
+        @Override
+        public String toString() {
+            return movie.getTitle() + " (tmdbId " + movie.getTmdbId() + ")";
+        }
+    }
+
+    public void printMoviesWithGenres() {
+        for (Movie movie : movieDAO.findAll(Movie.WITH_GENRES_GRAPH)) {
+            System.out.println("\nMovie: " + movie.getTitle());
+            System.out.println("Genres: " + movie.getGenres().stream()
+                    .map(Genre::getGenreName)
+                    .collect(Collectors.joining(", ")));
         }
     }
 
@@ -351,12 +929,16 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
      */
     public void printAllMovies() {
         try {
-            List<MovieDTO> movies = getAll(); // uses AbstractService.getAll()
-            if (movies.isEmpty()) {
+            // Page through the table so only one page of movies is held at a time
+            PageRequest request = PageRequest.first("id", false, PRINT_PAGE_SIZE);
+            Page<MovieDTO> page = getPage(request);
+            if (page.items().isEmpty()) {
                 System.out.println("No movies found in the database.");
-            } else {
-                System.out.println("Movies in database:");
-                for (MovieDTO movie : movies) {
+                return;
+            }
+            System.out.println("Movies in database:");
+            while (true) {
+                for (MovieDTO movie : page.items()) {
                     System.out.printf("ID: %d | Title: %s | Release Date: %s | Rating: %f | Language: %s%n",
                             movie.id(),
                             movie.title(),
@@ -364,12 +946,64 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
                             movie.rating(),
                             movie.originalLanguage());
                 }
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = getPage(request.after(page.nextCursor()));
             }
         } catch (Exception e) {
             throw ApiException.serverError("Failed to print movies: " + e.getMessage());
         }
     }
 
+    /**
+     * Write every movie with its genres, cast and director to a JSON Lines file, one TMDB-style
+     * movie details object per line. The movies are streamed from the database a chunk at a time,
+     * so the export runs in the same memory for a thousand movies or millions.
+     * @return the number of movies written
+     */
+    public long exportMoviesWithCredits(Path file) {
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        try (BufferedWriter out = Files.newBufferedWriter(file);
+             SequenceWriter lines = writer.writeValues(out)) {
+            long movies = movieDAO.streamAll(Movie.WITH_CREDITS_GRAPH, movie -> {
+                try {
+                    lines.write(toDetailsDTO(movie));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (movies > 0) {
+                // The separator only goes between values; JSON Lines ends every line
+                lines.flush();
+                out.newLine();
+            }
+            return movies;
+        } catch (IOException | UncheckedIOException e) {
+            throw ApiException.serverError("Failed to export movies to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static MovieDetailsDTO toDetailsDTO(Movie movie) {
+        List<GenreDTO> genres = movie.getGenres().stream()
+                .sorted(Comparator.comparing(Genre::getId))
+                .map(genre -> new GenreDTO(genre.getTmdbId(), genre.getGenreName()))
+                .toList();
+        List<ActorDTO> cast = movie.getActors().stream()
+                .sorted(Comparator.comparing(Actor::getId))
+                .map(actor -> new ActorDTO(actor.getTmdbId(), actor.getName(), null, null, null, null))
+                .toList();
+        Director director = movie.getDirector();
+        List<DirectorDTO> crew = director == null ? List.of() : List.of(
+                new DirectorDTO(director.getTmdbId(), director.getName(), director.getJob(), null, "Directing"));
+        return new MovieDetailsDTO(movie.getTmdbId(), movie.getTitle(), movie.getReleaseDate(),
+                movie.getRating() != null ? movie.getRating() : 0.0, movie.getOriginalLanguage(),
+                genres, new CreditsDTO(movie.getTmdbId(), cast, crew));
+    }
+
     public void printAllMoviesEntities(){
         var em = emf.createEntityManager();
         try {
@@ -392,26 +1026,12 @@ public class MovieService extends AbstractService<MovieDTO, Movie, Integer> {
         }
     }
 
-    public List<Movie> getTop10ByRating (){
-        var em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT m FROM Movie m ORDER BY m.rating desc", Movie.class)
-                    .setMaxResults(10)
-                    .getResultList();
-        } finally {
-            em.close();
-        }
+    public List<MovieDTO> getTop10ByRating (){
+        return movieDAO.findDTOsByRating(10, true);
     }
 
-    public List<Movie> getBottom10ByRating(){
-        var em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT m FROM Movie m ORDER BY m.rating asc", Movie.class)
-                    .setMaxResults(10)
-                    .getResultList();
-        } finally {
-            em.close();
-        }
+    public List<MovieDTO> getBottom10ByRating(){
+        return movieDAO.findDTOsByRating(10, false);
     }
 
     public Double getTotalAverageRating() {
@@ -0,0 +1,36 @@
+package app.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many ingested records were written and how many were skipped because their
+ * content hash had not changed. Safe to share between pipeline workers.
+ */
+public class ChangeCounter {
+
+    private final String name;
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    public ChangeCounter(String name) {
+        this.name = name;
+    }
+
+    public void record(long changedCount, long unchangedCount) {
+        changed.addAndGet(changedCount);
+        unchanged.addAndGet(unchangedCount);
+    }
+
+    public long getChanged() {
+        return changed.get();
+    }
+
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + changed.get() + " changed, " + unchanged.get() + " unchanged";
+    }
+}
@@ -0,0 +1,130 @@
+package app.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Append-only journal of finished work units for a resumable job.
+ * Every entry is one line that is forced to disk before markDone returns, so after a crash
+ * or restart the job can skip everything that was recorded. A torn last line (the process
+ * died mid-write) is dropped when the journal is reopened. The file is deleted once the
+ * job has completed.
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Set<String> done = Collections.synchronizedSet(new HashSet<>());
+
+    private CheckpointJournal(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        load();
+    }
+
+    public static CheckpointJournal open(Path file) {
+        try {
+            return new CheckpointJournal(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open checkpoint journal " + file, e);
+        }
+    }
+
+    /**
+     * Forget a previous run, e.g. when the database it described was recreated
+     */
+    public static void reset(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete checkpoint journal " + file, e);
+        }
+    }
+
+    public boolean isDone(String key) {
+        return done.contains(key);
+    }
+
+    /**
+     * Every key recorded so far
+     */
+    public Set<String> entries() {
+        synchronized (done) {
+            return Set.copyOf(done);
+        }
+    }
+
+    public int size() {
+        return done.size();
+    }
+
+    /**
+     * Durably record a finished unit of work
+     */
+    public synchronized void markDone(String key) {
+        if (key.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Checkpoint keys cannot contain line breaks: " + key);
+        }
+        if (!done.add(key)) {
+            return;
+        }
+        try {
+            ByteBuffer line = ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            done.remove(key);
+            throw new UncheckedIOException("Could not write checkpoint " + key + " to " + file, e);
+        }
+    }
+
+    /**
+     * The job finished: close and delete the journal so the next run starts from scratch
+     */
+    public synchronized void complete() {
+        close();
+        reset(file);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close checkpoint journal " + file, e);
+        }
+    }
+
+    private void load() throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        int lastNewline = -1;
+        int lineStart = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                if (i > lineStart) {
+                    done.add(new String(content, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                }
+                lineStart = i + 1;
+                lastNewline = i;
+            }
+        }
+        // Drop a torn trailing line and continue appending after the last complete one
+        channel.truncate(lastNewline + 1);
+        channel.position(lastNewline + 1);
+    }
+}
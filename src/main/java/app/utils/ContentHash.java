@@ -0,0 +1,40 @@
+package app.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compact 64-bit FNV-1a fingerprint of a record's source fields.
+ * Stored next to an ingested row so a re-sync can tell whether anything changed upstream
+ * without comparing field by field. Fields are separated and nulls are marked, so
+ * ("ab", null) and ("a", "b") hash differently.
+ */
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {
+    }
+
+    public static long of(Object... fields) {
+        long hash = OFFSET_BASIS;
+        for (Object field : fields) {
+            String value = field == null ? "\u0000" : field.toString();
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * PRIME;
+            }
+            hash = (hash ^ 0x1f) * PRIME;  // unit separator
+        }
+        return hash;
+    }
+
+    /**
+     * Sorted copy of an unordered collection, so the hash does not depend on iteration order
+     */
+    public static <T extends Comparable<? super T>> List<T> sorted(Collection<T> values) {
+        return values == null ? List.of() : values.stream().sorted().collect(Collectors.toList());
+    }
+}
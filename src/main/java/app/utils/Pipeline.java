@@ -0,0 +1,286 @@
+package app.utils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Staged producer/consumer pipeline.
+ * Every stage has its own worker threads and reads from a bounded queue, so a slow stage
+ * blocks the stages in front of it (backpressure) instead of letting work pile up in memory.
+ * A stage function returning null drops the item; anything it throws, an Error included, is
+ * recorded as a failure for that item and the pipeline carries on. A worker never dies on an item,
+ * because the stage in front of it would then block forever on a queue nobody reads.
+ *
+ * <pre>
+ * Pipeline.&lt;Movie&gt;named("movie-cast", 64)
+ *         .stage("fetch", 8, this::fetch)
+ *         .stage("decode", 2, this::decode)
+ *         .sink("persist", 1, this::persist)
+ *         .run(movies);
+ * </pre>
+ * @param <I> The type fed into the first stage
+ * @param <O> The type produced by the last stage
+ */
+public class Pipeline<I, O> {
+
+    // Marks the end of the input on a queue
+    private static final Object END = new Object();
+
+    private final String name;
+    private final int queueCapacity;
+    private final List<StageDefinition> stages;
+    private Duration reportInterval = Duration.ZERO;
+
+    private Pipeline(String name, int queueCapacity, List<StageDefinition> stages) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.stages = stages;
+    }
+
+    public static <T> Pipeline<T, T> named(String name, int queueCapacity) {
+        return new Pipeline<>(name, Math.max(1, queueCapacity), new ArrayList<>());
+    }
+
+    /**
+     * Add a stage running fn on the given number of threads
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<I, R> stage(String stageName, int parallelism, Function<? super O, ? extends R> fn) {
+        Function<Object, Object> untyped = item -> fn.apply((O) item);
+        stages.add(new StageDefinition(stageName, Math.max(1, parallelism), 1, untyped, null));
+        Pipeline<I, R> next = new Pipeline<>(name, queueCapacity, stages);
+        return next.reportEvery(reportInterval);
+    }
+
+    /**
+     * Add a final stage that consumes items one at a time
+     */
+    public Pipeline<I, Void> sink(String stageName, int parallelism, Consumer<? super O> consumer) {
+        return stage(stageName, parallelism, item -> {
+            consumer.accept(item);
+            return null;
+        });
+    }
+
+    /**
+     * Add a final single-threaded stage that consumes whatever is queued, up to batchSize items at a time
+     */
+    @SuppressWarnings("unchecked")
+    public Pipeline<I, Void> batchSink(String stageName, int batchSize, Consumer<List<O>> consumer) {
+        Consumer<List<Object>> untyped = batch -> consumer.accept((List<O>) (List<?>) batch);
+        stages.add(new StageDefinition(stageName, 1, Math.max(1, batchSize), null, untyped));
+        Pipeline<I, Void> next = new Pipeline<>(name, queueCapacity, stages);
+        return next.reportEvery(reportInterval);
+    }
+
+    /**
+     * Print the stage metrics periodically while the pipeline runs
+     */
+    public Pipeline<I, O> reportEvery(Duration interval) {
+        this.reportInterval = interval;
+        return this;
+    }
+
+    /**
+     * Feed the source through every stage and wait until all items have been handled.
+     * Feeding blocks while the first queue is full.
+     */
+    public Report run(Iterable<? extends I> source) throws InterruptedException {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("Pipeline " + name + " has no stages");
+        }
+
+        List<StageRuntime> runtimes = new ArrayList<>();
+        for (StageDefinition definition : stages) {
+            runtimes.add(new StageRuntime(definition, new ArrayBlockingQueue<>(queueCapacity)));
+        }
+
+        long startNanos = System.nanoTime();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < runtimes.size(); i++) {
+            StageRuntime stage = runtimes.get(i);
+            StageRuntime next = i + 1 < runtimes.size() ? runtimes.get(i + 1) : null;
+            for (int w = 0; w < stage.definition.parallelism(); w++) {
+                Thread worker = new Thread(() -> work(stage, next, failures),
+                        name + "-" + stage.definition.name() + "-" + (w + 1));
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        ScheduledExecutorService reporter = null;
+        if (!reportInterval.isZero()) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = reportInterval.toMillis();
+            reporter.scheduleAtFixedRate(() -> System.out.println(snapshot(runtimes, startNanos, failures)),
+                    millis, millis, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            StageRuntime first = runtimes.get(0);
+            for (I item : source) {
+                first.queue.put(item);
+                first.received.incrementAndGet();
+            }
+            for (int w = 0; w < first.definition.parallelism(); w++) {
+                first.queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            throw e;
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+        return snapshot(runtimes, startNanos, failures);
+    }
+
+    private void work(StageRuntime stage, StageRuntime next, List<String> failures) {
+        try {
+            process(stage, next, failures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The last worker of a stage to finish closes the next stage's queue.
+            // After an interrupt the whole pipeline is being torn down, so nobody is waiting.
+            if (stage.remainingWorkers.decrementAndGet() == 0 && next != null
+                    && !Thread.currentThread().isInterrupted()) {
+                try {
+                    for (int w = 0; w < next.definition.parallelism(); w++) {
+                        next.queue.put(END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void process(StageRuntime stage, StageRuntime next, List<String> failures) throws InterruptedException {
+        boolean done = false;
+        while (!done) {
+            Object first = stage.queue.take();
+            if (first == END) {
+                break;
+            }
+
+            List<Object> items = new ArrayList<>();
+            items.add(first);
+            if (stage.definition.batchSize() > 1) {
+                stage.queue.drainTo(items, stage.definition.batchSize() - 1);
+                done = items.remove(END);
+            }
+
+            long started = System.nanoTime();
+            if (stage.definition.batchConsumer() != null) {
+                try {
+                    stage.definition.batchConsumer().accept(items);
+                    stage.processed.addAndGet(items.size());
+                } catch (Throwable e) {
+                    stage.failed.addAndGet(items.size());
+                    failures.add(stage.definition.name() + " " + items.size() + " items: " + describe(e));
+                }
+            } else {
+                for (Object item : items) {
+                    Object result;
+                    try {
+                        result = stage.definition.fn().apply(item);
+                        stage.processed.incrementAndGet();
+                    } catch (Throwable e) {
+                        stage.failed.incrementAndGet();
+                        failures.add(stage.definition.name() + " " + item + ": " + describe(e));
+                        continue;
+                    }
+                    // Outside the try: an interrupt while handing on the result stops the worker
+                    if (result != null && next != null) {
+                        next.queue.put(result);
+                        next.received.incrementAndGet();
+                    }
+                }
+            }
+            stage.busyNanos.addAndGet(System.nanoTime() - started);
+        }
+    }
+
+    private static String describe(Throwable e) {
+        return e instanceof Error || e.getMessage() == null ? e.toString() : e.getMessage();
+    }
+
+    private Report snapshot(List<StageRuntime> runtimes, long startNanos, List<String> failures) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        List<StageMetrics> metrics = runtimes.stream()
+                .map(stage -> stage.metrics(elapsedNanos))
+                .collect(Collectors.toList());
+        synchronized (failures) {
+            return new Report(name, Duration.ofNanos(elapsedNanos), metrics, List.copyOf(failures));
+        }
+    }
+
+    private record StageDefinition(String name, int parallelism, int batchSize,
+                                   Function<Object, Object> fn, Consumer<List<Object>> batchConsumer) { }
+
+    private static class StageRuntime {
+        private final StageDefinition definition;
+        private final BlockingQueue<Object> queue;
+        private final AtomicInteger remainingWorkers;
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        private StageRuntime(StageDefinition definition, BlockingQueue<Object> queue) {
+            this.definition = definition;
+            this.queue = queue;
+            this.remainingWorkers = new AtomicInteger(definition.parallelism());
+        }
+
+        private StageMetrics metrics(long elapsedNanos) {
+            double seconds = Math.max(1, elapsedNanos) / 1_000_000_000.0;
+            double utilization = busyNanos.get() / (double) Math.max(1, elapsedNanos) / definition.parallelism();
+            int depth = (int) queue.stream().filter(item -> item != END).count();
+            return new StageMetrics(definition.name(), definition.parallelism(), received.get(), processed.get(),
+                    failed.get(), depth, processed.get() / seconds, utilization);
+        }
+    }
+
+    public record StageMetrics(String stage,
+                               int parallelism,
+                               long received,
+                               long processed,
+                               long failed,
+                               int queueDepth,
+                               double itemsPerSecond,
+                               double utilization) {
+        @Override
+        public String toString() {
+            return String.format("%s[x%d] in=%d done=%d failed=%d queued=%d %.1f/s busy=%.0f%%",
+                    stage, parallelism, received, processed, failed, queueDepth, itemsPerSecond, utilization * 100);
+        }
+    }
+
+    public record Report(String pipeline, Duration elapsed, List<StageMetrics> stages, List<String> failures) {
+        @Override
+        public String toString() {
+            return pipeline + " after " + elapsed.toMillis() + " ms: " + stages.stream()
+                    .map(StageMetrics::toString)
+                    .collect(Collectors.joining(" | "));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package app.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter shared between threads.
+ * Permits refill continuously at a fixed rate up to a burst size; callers that find
+ * the bucket empty reserve a future permit and sleep until it becomes available.
+ */
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+
+    private double storedPermits;
+    private long lastRefillNanos;
+
+    // Metrics
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong throttledAcquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, burst);
+        this.storedPermits = this.maxPermits;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a permit is available
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        acquisitions.incrementAndGet();
+        if (waitNanos > 0) {
+            throttledAcquisitions.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Empties the bucket so that every caller backs off for at least the given time,
+     * e.g. after the server answered 429 Too Many Requests
+     */
+    public synchronized void pause(long millis) {
+        refill(System.nanoTime());
+        double debt = TimeUnit.MILLISECONDS.toNanos(millis) * permitsPerNano;
+        storedPermits = Math.min(storedPermits, -debt);
+    }
+
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        storedPermits -= 1;
+        if (storedPermits >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-storedPermits / permitsPerNano);
+    }
+
+    private void refill(long now) {
+        if (now > lastRefillNanos) {
+            storedPermits = Math.min(maxPermits, storedPermits + (now - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = now;
+        }
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getThrottledAcquisitions() {
+        return throttledAcquisitions.get();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
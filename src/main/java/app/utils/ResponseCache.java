@@ -0,0 +1,248 @@
+package app.utils;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent HTTP response cache, one file per normalized URL.
+ * Entries keep the body together with ETag/Last-Modified so stale entries can be
+ * revalidated with a conditional GET. The directory is kept under a size budget by
+ * evicting the least recently used files (file modification time survives restarts).
+ * Entry files are read outside the lock; every put indexes its file as a new generation, so a
+ * failed read only discards the entry if nothing replaced it in the meantime.
+ */
+public class ResponseCache {
+
+    public record Entry(byte[] body, String etag, String lastModified, long expiresAtMillis) {
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAtMillis;
+        }
+    }
+
+    private static final String SUFFIX = ".cache";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // An indexed entry file; a new one for every file moved into place
+    private record Slot(long size, long generation) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+
+    // file name -> slot, in access order for LRU eviction
+    private final LinkedHashMap<String, Slot> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private long generations;
+
+    // Metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+            loadIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open response cache in " + directory, e);
+        }
+    }
+
+    /**
+     * Cache key for a request URL: the api_key parameter is dropped and the remaining
+     * query parameters are sorted so equivalent requests share one entry
+     */
+    public static String keyFor(String url) {
+        URI uri = URI.create(url);
+        String query = uri.getRawQuery() == null ? "" : Arrays.stream(uri.getRawQuery().split("&"))
+                .filter(param -> !param.isEmpty() && !param.startsWith("api_key="))
+                .sorted()
+                .collect(Collectors.joining("&"));
+        return uri.getHost() + uri.getRawPath() + (query.isEmpty() ? "" : "?" + query);
+    }
+
+    public Optional<Entry> get(String key) {
+        String fileName = fileName(key);
+        Slot slot;
+        synchronized (this) {
+            slot = index.get(fileName);  // get() also moves the entry to the LRU tail
+            if (slot == null) {
+                return Optional.empty();
+            }
+        }
+        Path file = directory.resolve(fileName);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            String storedKey = in.readUTF();
+            if (!storedKey.equals(key)) {
+                return Optional.empty();
+            }
+            String etag = readNullable(in);
+            String lastModified = readNullable(in);
+            long expiresAt = in.readLong();
+            byte[] body = in.readNBytes(in.readInt());
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(new Entry(body, etag, lastModified, expiresAt));
+        } catch (IOException e) {
+            removeIfCurrent(fileName, slot);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, Entry entry) {
+        String fileName = fileName(key);
+        Path file = directory.resolve(fileName);
+        try {
+            Path tmp = Files.createTempFile(directory, "entry", TMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeUTF(key);
+                writeNullable(out, entry.etag());
+                writeNullable(out, entry.lastModified());
+                out.writeLong(entry.expiresAtMillis());
+                out.writeInt(entry.body().length);
+                out.write(entry.body());
+            }
+            long size = Files.size(tmp);
+
+            // Moved under the lock, so the indexed slot always describes the file on disk
+            synchronized (this) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Slot previous = index.put(fileName, new Slot(size, ++generations));
+                totalBytes += size - (previous != null ? previous.size() : 0L);
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write response cache entry for " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mark an entry as stale so the next request revalidates it
+     */
+    public void expire(String key) {
+        get(key).ifPresent(entry -> put(key, new Entry(entry.body(), entry.etag(), entry.lastModified(), 0L)));
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Slot>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Slot> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue().size();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException ignored) {
+                // The file is no longer indexed, so a leftover is harmless
+            }
+        }
+    }
+
+    /**
+     * Drop an unreadable entry, unless a put replaced its file since it was looked up
+     */
+    private synchronized void removeIfCurrent(String fileName, Slot slot) {
+        if (index.get(fileName) != slot) {
+            return;
+        }
+        index.remove(fileName);
+        totalBytes -= slot.size();
+        try {
+            Files.deleteIfExists(directory.resolve(fileName));
+        } catch (IOException ignored) {
+            // Unreadable entry, nothing more to do
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = new ArrayList<>();
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    entries.add(file);
+                } else if (name.endsWith(TMP_SUFFIX)) {
+                    Files.deleteIfExists(file);  // left behind by a put that never finished
+                }
+            }
+            entries.sort(Comparator.comparing(ResponseCache::lastModified));
+            for (Path file : entries) {
+                long size = Files.size(file);
+                index.put(file.getFileName().toString(), new Slot(size, ++generations));
+                totalBytes += size;
+            }
+        }
+        evictIfNeeded();
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package app.utils;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent tmdbId -> row id map (plus the row's content hash) on primitive arrays.
+ * Open addressing with linear probing keeps an entry at 16 bytes of array space, instead of
+ * the boxed keys, values and entry objects of a HashMap. Readers use optimistic StampedLock
+ * reads and only fall back to a read lock when a writer got in between; writers are exclusive.
+ * tmdbIds must be positive, 0 marks a free slot.
+ */
+public class TmdbIdentityMap {
+
+    // Returned by getId for unknown tmdbIds; row ids are always positive
+    public static final int MISSING = 0;
+
+    // Stored when the row has no content hash; never matches a real one in practice
+    public static final long NO_HASH = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String name;
+    private final StampedLock lock = new StampedLock();
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean warm;
+
+    public TmdbIdentityMap(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the row id stored for tmdbId, or MISSING
+     */
+    public int getId(int tmdbId) {
+        long stamp = lock.tryOptimisticRead();
+        int id = findId(keys, ids, tmdbId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = findId(keys, ids, tmdbId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @return true if tmdbId is stored with exactly this content hash
+     */
+    public boolean isUnchanged(int tmdbId, long hash) {
+        long stamp = lock.tryOptimisticRead();
+        boolean unchanged = matches(keys, hashes, tmdbId, hash);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                unchanged = matches(keys, hashes, tmdbId, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return unchanged;
+    }
+
+    public void put(int tmdbId, int id, long hash) {
+        if (tmdbId <= 0) {
+            throw new IllegalArgumentException("tmdbId must be positive: " + tmdbId);
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                resize(keys.length * 2);
+            }
+            int slot = slotOf(keys, tmdbId);
+            if (keys[slot] == 0) {
+                keys[slot] = tmdbId;
+                size++;
+            }
+            ids[slot] = id;
+            hashes[slot] = hash;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = new int[INITIAL_CAPACITY];
+            ids = new int[INITIAL_CAPACITY];
+            hashes = new long[INITIAL_CAPACITY];
+            size = 0;
+            warm = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * A warm map holds every stored row, so a tmdbId it does not know is not in the database
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public void setWarm(boolean warm) {
+        this.warm = warm;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getMemoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return keys.length * 16L;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + size() + " ids in " + getMemoryBytes() / 1024 + " KiB";
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldIds = ids;
+        long[] oldHashes = hashes;
+        int[] newKeys = new int[capacity];
+        int[] newIds = new int[capacity];
+        long[] newHashes = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(newKeys, oldKeys[i]);
+                newKeys[slot] = oldKeys[i];
+                newIds[slot] = oldIds[i];
+                newHashes[slot] = oldHashes[i];
+            }
+        }
+        keys = newKeys;
+        ids = newIds;
+        hashes = newHashes;
+    }
+
+    // The arrays are passed in so an optimistic reader works on one consistent generation
+    private static int findId(int[] keys, int[] ids, int tmdbId) {
+        int slot = probe(keys, tmdbId);
+        return slot >= 0 && slot < ids.length ? ids[slot] : MISSING;
+    }
+
+    private static boolean matches(int[] keys, long[] hashes, int tmdbId, long hash) {
+        int slot = probe(keys, tmdbId);
+        return hash != NO_HASH && slot >= 0 && slot < hashes.length && hashes[slot] == hash;
+    }
+
+    // Slot holding tmdbId, or -1
+    private static int probe(int[] keys, int tmdbId) {
+        int mask = keys.length - 1;
+        int slot = mix(tmdbId) & mask;
+        for (int i = 0; i < keys.length; i++) {
+            int key = keys[slot];
+            if (key == tmdbId) {
+                return slot;
+            }
+            if (key == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Slot holding tmdbId, or the free slot where it goes
+    private static int slotOf(int[] keys, int tmdbId) {
+        int mask = keys.length - 1;
+        int slot = mix(tmdbId) & mask;
+        while (keys[slot] != 0 && keys[slot] != tmdbId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Spread sequential ids over the table
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -25,4 +25,24 @@ public class Utils {
             throw new ApiException(500, String.format("Could not read property %s.", propName));
         }
     }
+
+    public static String getPropertyValue(String propName, String resourceName, String defaultValue) {
+        try {
+            return getPropertyValue(propName, resourceName);
+        } catch (ApiException ex) {
+            return defaultValue;
+        }
+    }
+
+    public static int getIntPropertyValue(String propName, String resourceName, int defaultValue) {
+        String value = getPropertyValue(propName, resourceName, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new ApiException(500, String.format("Property %s in %s is not a number: %s", propName, resourceName, value));
+        }
+    }
 }
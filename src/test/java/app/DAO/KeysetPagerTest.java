@@ -0,0 +1,128 @@
+package app.DAO;
+
+import app.entities.Movie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPagerTest {
+
+    private static final KeysetPager<Movie> PAGER = new KeysetPager<>(Movie.class, "id", Integer.class,
+            Map.of("rating", Double.class,
+                    "releaseDate", LocalDate.class,
+                    "title", String.class,
+                    "votes", Long.class));
+
+    static Stream<Arguments> cursorValues() {
+        return Stream.of(
+                Arguments.of("id", 42, 42),
+                Arguments.of("rating", 7.25, 1),
+                Arguments.of("rating", -0.5, 2),
+                Arguments.of("rating", null, 3),
+                Arguments.of("releaseDate", LocalDate.of(2021, 2, 28), 4),
+                Arguments.of("releaseDate", null, 5),
+                Arguments.of("title", "Festen", 6),
+                Arguments.of("title", "", 7),
+                Arguments.of("title", "a.b = c/d+e æøå", 8),
+                Arguments.of("votes", 9_000_000_000L, 9));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cursorValues")
+    void cursorsRoundTripInBothDirections(String sort, Object value, int id) {
+        for (boolean descending : new boolean[]{false, true}) {
+            PageRequest request = PageRequest.first(sort, descending, 10);
+            String cursor = PAGER.encode(request, value, id);
+
+            KeysetPager.Cursor decoded = PAGER.decode(request.after(cursor));
+
+            assertEquals(value, decoded.value());
+            assertEquals(id, decoded.id());
+            assertTrue(cursor.matches("[A-Za-z0-9_.-]*"), cursor);
+        }
+    }
+
+    @Test
+    void anEmptyStringIsNotNull() {
+        PageRequest request = PageRequest.first("title", false, 10);
+
+        assertNotEquals(PAGER.encode(request, "", 1), PAGER.encode(request, null, 1));
+        assertNull(PAGER.decode(request.after(PAGER.encode(request, null, 1))).value());
+    }
+
+    @Test
+    void aCursorOnlyFitsItsOwnSortOrder() {
+        PageRequest byRating = PageRequest.first("rating", false, 10);
+        String cursor = PAGER.encode(byRating, 8.0, 3);
+
+        IllegalArgumentException otherKey = assertThrows(IllegalArgumentException.class,
+                () -> PAGER.decode(PageRequest.first("releaseDate", false, 10).after(cursor)));
+        assertEquals("Page cursor belongs to a different sort order", otherKey.getMessage());
+
+        IllegalArgumentException otherDirection = assertThrows(IllegalArgumentException.class,
+                () -> PAGER.decode(PageRequest.first("rating", true, 10).after(cursor)));
+        assertEquals("Page cursor belongs to a different sort order", otherDirection.getMessage());
+
+        // The page size is not part of the order
+        assertEquals(8.0, PAGER.decode(PageRequest.first("rating", false, 50).after(cursor)).value());
+    }
+
+    static Stream<String> tamperedCursors() {
+        String valid = PAGER.encode(PageRequest.first("rating", false, 10), 8.0, 3);
+        String[] fields = valid.split("\\.");
+        return Stream.of(
+                "",
+                "garbage",
+                valid + ".",
+                fields[0] + "." + fields[1] + "." + fields[2],
+                valid.replace(fields[3], "%%%"),
+                fields[0] + "." + fields[1] + "." + field("=not a number") + "." + fields[3],
+                fields[0] + "." + fields[1] + "." + fields[2] + "." + field("3; DROP TABLE movies"),
+                fields[0] + "." + fields[1] + "." + fields[2] + "." + field(""));
+    }
+
+    @ParameterizedTest
+    @MethodSource("tamperedCursors")
+    void tamperedCursorsAreRejected(String cursor) {
+        PageRequest request = new PageRequest("rating", false, 10, cursor);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PAGER.decode(request));
+        assertEquals("Invalid page cursor", e.getMessage());
+    }
+
+    @Test
+    void aTamperedDateIsRejected() {
+        PageRequest request = PageRequest.first("releaseDate", false, 10);
+        String[] fields = PAGER.encode(request, LocalDate.of(2020, 1, 1), 3).split("\\.");
+        String cursor = fields[0] + "." + fields[1] + "." + field("=2020-02-30") + "." + fields[3];
+
+        assertThrows(IllegalArgumentException.class, () -> PAGER.decode(request.after(cursor)));
+    }
+
+    @Test
+    void unknownSortKeysAreRejectedBeforeQuerying() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> PAGER.findPage(null, PageRequest.first("title; DROP TABLE movies", false, 10)));
+        assertTrue(e.getMessage().startsWith("Cannot sort Movie by"), e.getMessage());
+    }
+
+    @Test
+    void pageRequestsAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.first("id", false, 0));
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.first("id", false, PageRequest.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> PageRequest.first(" ", false, 10));
+    }
+
+    private static String field(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package app.DAO;
+
+import app.config.HibernateConfig;
+import app.entities.Movie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class MovieDAOPagingTest {
+
+    private static EntityManagerFactory emf;
+    private static MovieDAO movieDAO;
+    private static List<Movie> movies;
+
+    @BeforeAll
+    static void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        movieDAO = new MovieDAO(emf);
+
+        // Repeated ratings and dates so ties are broken by id, and nulls in between
+        Double[] ratings = {7.5, null, 6.0, 7.5, null, 9.1, 6.0, 7.5, null, 3.2, 7.5, 9.1, null};
+        movies = new ArrayList<>();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            for (int i = 0; i < ratings.length; i++) {
+                Movie movie = Movie.builder()
+                        .tmdbId(1000 + i)
+                        .title("Movie " + i)
+                        .rating(ratings[i])
+                        .releaseDate(i % 4 == 0 ? null : LocalDate.of(2020, 1 + i % 3, 1))
+                        .build();
+                em.persist(movie);
+                movies.add(movie);
+            }
+            em.getTransaction().commit();
+        }
+    }
+
+    static Stream<Arguments> orders() {
+        return Stream.of(1, 2, 3, 5, 13, 20).flatMap(size -> Stream.of(
+                Arguments.of("id", false, size),
+                Arguments.of("id", true, size),
+                Arguments.of("rating", false, size),
+                Arguments.of("rating", true, size),
+                Arguments.of("releaseDate", false, size),
+                Arguments.of("releaseDate", true, size)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orders")
+    void pagesVisitEveryMovieOnceInOrder(String sort, boolean descending, int size) {
+        List<Integer> visited = new ArrayList<>();
+        Page<Movie> page = movieDAO.findPage(PageRequest.first(sort, descending, size));
+        int pages = 1;
+        while (true) {
+            assertTrue(page.items().size() <= size);
+            page.items().forEach(movie -> visited.add(movie.getId()));
+            if (!page.hasNext()) {
+                break;
+            }
+            assertEquals(size, page.items().size(), "only the last page may be short");
+            page = movieDAO.findPage(PageRequest.first(sort, descending, size).after(page.nextCursor()));
+            assertTrue(++pages <= movies.size(), "paging does not end");
+        }
+
+        assertEquals(expectedOrder(sort, descending), visited);
+    }
+
+    // Ascending puts nulls last, descending puts them first; ties go by id in the same direction
+    private static List<Integer> expectedOrder(String sort, boolean descending) {
+        Comparator<Movie> order = switch (sort) {
+            case "rating" -> Comparator.comparing(Movie::getRating, Comparator.nullsLast(Comparator.naturalOrder()));
+            case "releaseDate" -> Comparator.comparing(Movie::getReleaseDate,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            default -> Comparator.comparing(Movie::getId);
+        };
+        order = order.thenComparing(Movie::getId);
+        return movies.stream()
+                .sorted(descending ? order.reversed() : order)
+                .map(Movie::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,201 @@
+package app.DAO;
+
+import app.config.HibernateConfig;
+import app.entities.Actor;
+import app.entities.Director;
+import app.utils.TmdbIdentityMap;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class NativeUpsertTest {
+
+    private static EntityManagerFactory emf;
+
+    // Each test owns its map, so the process-wide IdentityMaps are left alone
+    private TmdbIdentityMap identityMap;
+    private NativeUpsert<Actor> upsert;
+
+    @BeforeAll
+    static void setUp() {
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+    }
+
+    @BeforeEach
+    void createUpsert() {
+        identityMap = new TmdbIdentityMap("test-actors");
+        upsert = new NativeUpsert<>(Actor.class, "actors", "actor_id", "actors_seq",
+                List.of("tmdbId", "actor_name", "actor_age", "source_hash"),
+                List.of("actor_name", "source_hash"),
+                "source_hash",
+                actor -> new Object[]{actor.getTmdbId(), actor.getName(), actor.getAge(), actor.getSourceHash()},
+                identityMap);
+    }
+
+    @Test
+    void insertsNewRowsAndReturnsTheirIds() {
+        UpsertResult result = upsert.execute(emf, List.of(actor(100, "A", 1L), actor(101, "B", 2L)));
+
+        assertEquals(Set.of(100, 101), result.writtenTmdbIds());
+        assertEquals(storedId(100), result.ids().get(100));
+        assertEquals(storedId(101), result.ids().get(101));
+        assertEquals("A", storedName(100));
+    }
+
+    @Test
+    void updatesStoredRowsWithoutDrawingIds() {
+        Map<Integer, Integer> inserted = upsert.execute(emf, List.of(actor(200, "A", 1L), actor(201, "B", 2L))).ids();
+        long sequenceBefore = sequenceValue();
+
+        UpsertResult result = upsert.execute(emf, List.of(actor(200, "A2", 3L), actor(201, "B2", 4L)));
+
+        assertEquals(Set.of(200, 201), result.writtenTmdbIds());
+        assertEquals(inserted, result.ids());
+        assertEquals("A2", storedName(200));
+        assertEquals("B2", storedName(201));
+        assertEquals(sequenceBefore, sequenceValue());
+    }
+
+    @Test
+    void mixedBatchInsertsAndUpdates() {
+        int storedId = upsert.execute(emf, List.of(actor(300, "A", 1L))).ids().get(300);
+
+        UpsertResult result = upsert.execute(emf, List.of(actor(300, "A2", 2L), actor(301, "B", 3L)));
+
+        assertEquals(storedId, result.ids().get(300));
+        assertEquals(storedId(301), result.ids().get(301));
+        assertNotEquals(storedId, result.ids().get(301));
+        assertEquals("A2", storedName(300));
+    }
+
+    @Test
+    void duplicateTmdbIdsInOneBatchKeepTheLastRow() {
+        UpsertResult result = upsert.execute(emf, List.of(actor(400, "First", 1L), actor(400, "Last", 2L)));
+
+        assertEquals(1, result.ids().size());
+        assertEquals(Set.of(400), result.writtenTmdbIds());
+        assertEquals("Last", storedName(400));
+        assertEquals(1L, count("SELECT count(*) FROM actors WHERE tmdbId = 400"));
+    }
+
+    @Test
+    void coldMapSkipsUnchangedRowsByStoredHash() {
+        Map<Integer, Integer> inserted = upsert.execute(emf, List.of(actor(500, "A", 1L), actor(501, "B", 2L))).ids();
+        identityMap.clear();
+        assertFalse(identityMap.isWarm());
+
+        UpsertResult result = upsert.execute(emf, List.of(actor(500, "A", 1L), actor(501, "B2", 3L)));
+
+        assertEquals(Set.of(501), result.writtenTmdbIds());
+        assertEquals(inserted, result.ids());
+        assertEquals("B2", storedName(501));
+    }
+
+    @Test
+    void warmMapSkipsUnchangedRowsByHash() {
+        Map<Integer, Integer> inserted = upsert.execute(emf, List.of(actor(600, "A", 1L), actor(601, "B", 2L))).ids();
+        identityMap.clear();
+        upsert.warm(emf);
+        assertTrue(identityMap.isWarm());
+        // Changed behind the map's back: an unchanged hash is trusted and the row is not written
+        execute("UPDATE actors SET actor_name = 'Elsewhere' WHERE tmdbId = 600");
+
+        UpsertResult result = upsert.execute(emf, List.of(actor(600, "A", 1L), actor(601, "B2", 3L)));
+
+        assertEquals(Set.of(601), result.writtenTmdbIds());
+        assertEquals(inserted, result.ids());
+        assertEquals("Elsewhere", storedName(600));
+        assertEquals("B2", storedName(601));
+        assertTrue(identityMap.isUnchanged(601, 3L));
+    }
+
+    @Test
+    void publishesToTheIdentityMapOnCommitOnly() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            upsert.execute(em, List.of(actor(700, "A", 1L)));
+            assertEquals(TmdbIdentityMap.MISSING, identityMap.getId(700));
+            em.getTransaction().rollback();
+        }
+        assertEquals(TmdbIdentityMap.MISSING, identityMap.getId(700));
+        assertEquals(0L, count("SELECT count(*) FROM actors WHERE tmdbId = 700"));
+
+        int id;
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            id = upsert.execute(em, List.of(actor(700, "A", 1L))).ids().get(700);
+            assertEquals(TmdbIdentityMap.MISSING, identityMap.getId(700));
+            em.getTransaction().commit();
+        }
+        assertEquals(id, identityMap.getId(700));
+        assertTrue(identityMap.isUnchanged(700, 1L));
+    }
+
+    @Test
+    void insertLinksIsIdempotent() {
+        Map<Integer, Integer> actorIds = upsert.execute(emf, List.of(actor(800, "A", 1L), actor(801, "B", 2L))).ids();
+        Director director = Director.builder().tmdbId(800).name("D").job("Director").build();
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.persist(director);
+            em.getTransaction().commit();
+        }
+        Map<Integer, List<Integer>> links = Map.of(
+                actorIds.get(800), List.of(director.getId(), director.getId()),
+                actorIds.get(801), List.of(director.getId()));
+
+        for (int i = 0; i < 2; i++) {
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                NativeUpsert.insertLinks(em, "actor_director", "actor_id", "director_id", links);
+                em.getTransaction().commit();
+            }
+        }
+
+        assertEquals(2L, count("SELECT count(*) FROM actor_director WHERE director_id = " + director.getId()));
+    }
+
+    private static Actor actor(int tmdbId, String name, long sourceHash) {
+        return Actor.builder().tmdbId(tmdbId).name(name).sourceHash(sourceHash).build();
+    }
+
+    private static Integer storedId(int tmdbId) {
+        return ((Number) single("SELECT actor_id FROM actors WHERE tmdbId = " + tmdbId)).intValue();
+    }
+
+    private static String storedName(int tmdbId) {
+        return (String) single("SELECT actor_name FROM actors WHERE tmdbId = " + tmdbId);
+    }
+
+    private static long sequenceValue() {
+        return ((Number) single("SELECT last_value FROM actors_seq")).longValue();
+    }
+
+    private static long count(String sql) {
+        return ((Number) single(sql)).longValue();
+    }
+
+    private static Object single(String sql) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createNativeQuery(sql).getSingleResult();
+        }
+    }
+
+    private static void execute(String sql) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createNativeQuery(sql).executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+}
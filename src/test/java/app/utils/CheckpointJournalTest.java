@@ -0,0 +1,130 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private Path journalFile() {
+        return directory.resolve("jobs").resolve("test.journal");
+    }
+
+    @Test
+    void aReopenedJournalResumesWhereTheRunStopped() {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            journal.markDone("1");
+            journal.markDone("2");
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertTrue(journal.isDone("1"));
+            assertTrue(journal.isDone("2"));
+            assertFalse(journal.isDone("3"));
+            assertEquals(Set.of("1", "2"), journal.entries());
+
+            journal.markDone("3");
+        }
+
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertEquals(Set.of("1", "2", "3"), journal.entries());
+        }
+    }
+
+    @Test
+    void markingAKeyTwiceWritesItOnce() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            journal.markDone("page 1");
+            journal.markDone("page 1");
+            assertEquals(1, journal.size());
+        }
+        assertEquals("page 1\n", Files.readString(journalFile()));
+    }
+
+    @Test
+    void aTornLastLineIsDroppedOnReopen() throws IOException {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            journal.markDone("1");
+            journal.markDone("2");
+        }
+        // The process died halfway through writing "3\n"
+        Files.write(journalFile(), "3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertEquals(Set.of("1", "2"), journal.entries());
+            journal.markDone("4");
+        }
+        assertEquals("1\n2\n4\n", Files.readString(journalFile()));
+    }
+
+    @Test
+    void aCompletedJournalStartsOver() {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            journal.markDone("1");
+            journal.complete();
+        }
+        assertFalse(Files.exists(journalFile()));
+
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertEquals(0, journal.size());
+        }
+    }
+
+    @Test
+    void resetForgetsAnEarlierRun() {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            journal.markDone("1");
+        }
+        CheckpointJournal.reset(journalFile());
+        CheckpointJournal.reset(journalFile());
+
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertFalse(journal.isDone("1"));
+        }
+    }
+
+    @Test
+    void keysCannotSpanLines() {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertThrows(IllegalArgumentException.class, () -> journal.markDone("a\nb"));
+            assertEquals(0, journal.size());
+        }
+    }
+
+    @Test
+    void concurrentWritersKeepEveryEntry() throws InterruptedException {
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            Thread[] writers = new Thread[4];
+            for (int w = 0; w < writers.length; w++) {
+                int offset = w * 100;
+                writers[w] = new Thread(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        journal.markDone(String.valueOf(offset + i));
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        Set<String> expected = IntStream.range(0, 400).mapToObj(String::valueOf).collect(Collectors.toSet());
+        try (CheckpointJournal journal = CheckpointJournal.open(journalFile())) {
+            assertEquals(expected, journal.entries());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static List<Integer> numbers(int count) {
+        return IntStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void everyItemReachesTheSinkThroughParallelStages() {
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+
+        Pipeline.Report report = assertTimeoutPreemptively(TIMEOUT, () -> Pipeline.<Integer>named("test", 4)
+                .stage("double", 3, n -> n * 2)
+                .stage("format", 2, n -> "#" + n)
+                .sink("collect", 2, s -> received.add(Integer.parseInt(s.substring(1))))
+                .run(numbers(500)));
+
+        assertEquals(500, received.size());
+        assertEquals(numbers(500).stream().map(n -> n * 2).collect(Collectors.toSet()), Set.copyOf(received));
+        assertTrue(report.failures().isEmpty());
+        for (Pipeline.StageMetrics stage : report.stages()) {
+            assertEquals(500, stage.received(), stage.stage());
+            assertEquals(500, stage.processed(), stage.stage());
+            assertEquals(0, stage.queueDepth(), stage.stage());
+        }
+    }
+
+    @Test
+    void nullResultsAreDropped() throws InterruptedException {
+        AtomicInteger sunk = new AtomicInteger();
+
+        Pipeline.Report report = Pipeline.<Integer>named("test", 2)
+                .stage("even", 2, n -> n % 2 == 0 ? n : null)
+                .sink("count", 1, n -> sunk.incrementAndGet())
+                .run(numbers(100));
+
+        assertEquals(50, sunk.get());
+        assertEquals(100, report.stages().get(0).processed());
+        assertEquals(50, report.stages().get(1).received());
+    }
+
+    @Test
+    void emptySourceEndsEveryStage() {
+        Pipeline.Report report = assertTimeoutPreemptively(TIMEOUT, () -> Pipeline.<Integer>named("test", 1)
+                .stage("a", 4, n -> n)
+                .stage("b", 3, n -> n)
+                .batchSink("c", 10, batch -> { })
+                .run(List.of()));
+
+        assertTrue(report.stages().stream().allMatch(stage -> stage.processed() == 0));
+    }
+
+    @Test
+    void batchSinkReceivesEveryItemOnce() {
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        assertTimeoutPreemptively(TIMEOUT, () -> Pipeline.<Integer>named("test", 8)
+                .stage("pass", 3, n -> n)
+                .batchSink("collect", 5, batch -> {
+                    batchSizes.add(batch.size());
+                    received.addAll(batch);
+                })
+                .run(numbers(200)));
+
+        assertEquals(200, received.size());
+        assertEquals(Set.copyOf(numbers(200)), Set.copyOf(received));
+        assertTrue(batchSizes.stream().allMatch(size -> size >= 1 && size <= 5), batchSizes::toString);
+    }
+
+    @Test
+    void aSlowSinkHoldsBackTheSource() throws Exception {
+        int capacity = 2;
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger pulled = new AtomicInteger();
+        Iterable<Integer> source = () -> new Iterator<>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= 1000;
+            }
+
+            @Override
+            public Integer next() {
+                pulled.incrementAndGet();
+                return next++;
+            }
+        };
+
+        AtomicInteger sunk = new AtomicInteger();
+        AtomicReference<Pipeline.Report> report = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            try {
+                report.set(Pipeline.<Integer>named("test", capacity)
+                        .stage("pass", 1, n -> n)
+                        .sink("slow", 1, n -> {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            sunk.incrementAndGet();
+                        })
+                        .run(source));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        runner.start();
+
+        // Wait until the source stops being read, i.e. every queue in front of the sink is full
+        int previous = -1;
+        while (pulled.get() != previous) {
+            previous = pulled.get();
+            Thread.sleep(100);
+        }
+        // One item in the sink, one waiting to enter each queue, plus both queues full
+        assertTrue(pulled.get() <= 3 + 2 * capacity, "pulled " + pulled.get() + " items");
+
+        release.countDown();
+        runner.join(TIMEOUT.toMillis());
+        assertFalse(runner.isAlive());
+        assertEquals(1000, sunk.get());
+        assertTrue(report.get().failures().isEmpty());
+    }
+
+    @Test
+    void failingItemsAreReportedAndTheRestCarryOn() {
+        AtomicInteger sunk = new AtomicInteger();
+
+        // More items than the queues hold: a worker killed by the Error would block the source forever
+        Pipeline.Report report = assertTimeoutPreemptively(TIMEOUT, () -> Pipeline.<Integer>named("test", 2)
+                .stage("check", 1, n -> {
+                    if (n == 3) {
+                        throw new IllegalStateException("bad item");
+                    }
+                    if (n == 7) {
+                        throw new AssertionError("worse item");
+                    }
+                    return n;
+                })
+                .sink("count", 1, n -> sunk.incrementAndGet())
+                .run(numbers(50)));
+
+        assertEquals(48, sunk.get());
+        Pipeline.StageMetrics check = report.stages().get(0);
+        assertEquals(48, check.processed());
+        assertEquals(2, check.failed());
+        assertEquals(2, report.failures().size());
+        assertTrue(report.failures().contains("check 3: bad item"), report.failures()::toString);
+        assertTrue(report.failures().contains("check 7: java.lang.AssertionError: worse item"),
+                report.failures()::toString);
+    }
+
+    @Test
+    void aFailingBatchIsReportedWithItsSize() {
+        Pipeline.Report report = assertTimeoutPreemptively(TIMEOUT, () -> Pipeline.<Integer>named("test", 100)
+                .batchSink("fail", 100, batch -> {
+                    throw new OutOfMemoryError("no room");
+                })
+                .run(numbers(20)));
+
+        Pipeline.StageMetrics stage = report.stages().get(0);
+        assertEquals(20, stage.failed());
+        assertEquals(0, stage.processed());
+        assertFalse(report.failures().isEmpty());
+        assertTrue(report.failures().get(0).contains("OutOfMemoryError: no room"), report.failures()::toString);
+    }
+
+    @Test
+    void aPipelineNeedsAStage() {
+        assertThrows(IllegalStateException.class, () -> Pipeline.<Integer>named("test", 1).run(numbers(1)));
+    }
+
+    @Test
+    void interruptingTheCallerStopsTheWorkers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            try {
+                Pipeline.<Integer>named("test", 1)
+                        .sink("stuck", 1, n -> {
+                            started.countDown();
+                            try {
+                                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        })
+                        .run(numbers(10));
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        });
+        runner.start();
+        assertTrue(started.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+
+        runner.interrupt();
+        runner.join(TIMEOUT.toMillis());
+        assertFalse(runner.isAlive());
+        assertInstanceOf(InterruptedException.class, outcome.get());
+    }
+}
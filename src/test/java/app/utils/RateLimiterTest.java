@@ -0,0 +1,78 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void aBurstIsServedWithoutWaiting() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1, 5);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+
+        assertEquals(5, limiter.getAcquisitions());
+        assertEquals(0, limiter.getThrottledAcquisitions());
+    }
+
+    @Test
+    void anEmptyBucketWaitsForTheNextToken() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20, 1);  // a token every 50 ms
+        limiter.acquire();
+
+        long started = System.nanoTime();
+        limiter.acquire();
+        long waitedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(1, limiter.getThrottledAcquisitions());
+        assertTrue(waitedMillis >= 40, "waited " + waitedMillis + " ms");
+        assertTrue(limiter.getMaxWaitMillis() >= 40 && limiter.getMaxWaitMillis() <= 50);
+    }
+
+    @Test
+    void tokensRefillUpToTheBurst() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(50, 2);  // a token every 20 ms
+        limiter.acquire();
+        limiter.acquire();
+
+        Thread.sleep(200);  // long enough for ten tokens, of which two are kept
+        limiter.acquire();
+        limiter.acquire();
+        assertEquals(0, limiter.getThrottledAcquisitions());
+
+        limiter.acquire();
+        assertEquals(1, limiter.getThrottledAcquisitions());
+    }
+
+    @Test
+    void pauseMakesTheNextCallerWaitOutTheDebt() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1000, 10);
+
+        limiter.pause(200);
+        long started = System.nanoTime();
+        limiter.acquire();
+        long waitedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(1, limiter.getThrottledAcquisitions());
+        assertTrue(waitedMillis >= 150, "waited " + waitedMillis + " ms");
+    }
+
+    @Test
+    void aShorterPauseDoesNotCancelALongerOne() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1000, 10);
+
+        limiter.pause(200);
+        limiter.pause(10);
+        limiter.acquire();
+
+        assertTrue(limiter.getMaxWaitMillis() >= 150, "waited " + limiter.getMaxWaitMillis() + " ms");
+    }
+
+    @Test
+    void theRateMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1));
+    }
+}
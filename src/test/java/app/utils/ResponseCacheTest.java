@@ -0,0 +1,112 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    private static ResponseCache.Entry entry(String body, long expiresAtMillis) {
+        return new ResponseCache.Entry(body.getBytes(StandardCharsets.UTF_8), "\"etag\"", null, expiresAtMillis);
+    }
+
+    @Test
+    void keysIgnoreTheApiKeyAndParameterOrder() {
+        String key = ResponseCache.keyFor("https://api.themoviedb.org/3/discover/movie?page=2&api_key=secret&language=da");
+
+        assertEquals("api.themoviedb.org/3/discover/movie?language=da&page=2", key);
+        assertEquals(key, ResponseCache.keyFor("https://api.themoviedb.org/3/discover/movie?language=da&page=2&api_key=other"));
+        assertNotEquals(key, ResponseCache.keyFor("https://api.themoviedb.org/3/discover/movie?language=da&page=3"));
+        assertEquals("api.themoviedb.org/3/genre/movie/list",
+                ResponseCache.keyFor("https://api.themoviedb.org/3/genre/movie/list?api_key=secret"));
+    }
+
+    @Test
+    void entriesSurviveReopening() {
+        new ResponseCache(directory, 1024 * 1024).put("a", entry("body a", NEVER));
+
+        ResponseCache reopened = new ResponseCache(directory, 1024 * 1024);
+        ResponseCache.Entry entry = reopened.get("a").orElseThrow();
+
+        assertEquals("body a", new String(entry.body(), StandardCharsets.UTF_8));
+        assertEquals("\"etag\"", entry.etag());
+        assertNull(entry.lastModified());
+        assertTrue(reopened.get("b").isEmpty());
+    }
+
+    @Test
+    void theLeastRecentlyUsedEntryIsEvicted() {
+        String body = "x".repeat(1000);
+        ResponseCache probe = new ResponseCache(directory.resolve("probe"), 1024 * 1024);
+        probe.put("a", entry(body, NEVER));
+        long entryBytes = probe.getSizeBytes();
+
+        // Room for two entries
+        ResponseCache cache = new ResponseCache(directory.resolve("cache"), entryBytes * 2 + entryBytes / 2);
+        cache.put("a", entry(body, NEVER));
+        cache.put("b", entry(body, NEVER));
+        assertTrue(cache.get("a").isPresent());
+        cache.put("c", entry(body, NEVER));
+
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(entryBytes * 2, cache.getSizeBytes());
+    }
+
+    @Test
+    void expiredEntriesAreKeptForRevalidation() {
+        ResponseCache cache = new ResponseCache(directory, 1024 * 1024);
+        cache.put("stale", entry("old", System.currentTimeMillis() - 1));
+        cache.put("fresh", entry("new", NEVER));
+
+        ResponseCache.Entry stale = cache.get("stale").orElseThrow();
+        assertFalse(stale.isFresh());
+        assertEquals("\"etag\"", stale.etag());
+        assertTrue(cache.get("fresh").orElseThrow().isFresh());
+
+        cache.expire("fresh");
+        ResponseCache.Entry expired = cache.get("fresh").orElseThrow();
+        assertFalse(expired.isFresh());
+        assertEquals("new", new String(expired.body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void anUnreadableEntryIsDropped() throws IOException {
+        ResponseCache cache = new ResponseCache(directory, 1024 * 1024);
+        cache.put("a", entry("body a", NEVER));
+        try (Stream<Path> files = Files.list(directory)) {
+            Files.write(files.findFirst().orElseThrow(), new byte[]{1, 2});
+        }
+
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals(0, cache.getSizeBytes());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void reopeningDeletesUnfinishedTempFiles() throws IOException {
+        new ResponseCache(directory, 1024 * 1024).put("a", entry("body a", NEVER));
+        Path tmp = Files.createTempFile(directory, "entry", ".tmp");
+
+        ResponseCache reopened = new ResponseCache(directory, 1024 * 1024);
+
+        assertFalse(Files.exists(tmp));
+        assertTrue(reopened.get("a").isPresent());
+    }
+}
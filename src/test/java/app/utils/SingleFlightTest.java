@@ -0,0 +1,136 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    /**
+     * Runs call as the leader for key in another thread and returns once it is in flight
+     */
+    private static <T> Future<T> lead(ExecutorService executor, SingleFlight flight, String key,
+                                      Supplier<T> call) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<T> leader = executor.submit(() -> flight.execute(key, () -> {
+            started.countDown();
+            return call.get();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return leader;
+    }
+
+    // A follower is counted as shared as soon as it found the flight, before it blocks on the result
+    private static void awaitSharedCalls(SingleFlight flight, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getSharedCalls() < count) {
+            assertTrue(System.nanoTime() < deadline, "follower never joined the flight");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void aFollowerSharesTheLeadersResult() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Object result = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = lead(executor, flight, "key", () -> {
+                calls.incrementAndGet();
+                awaitQuietly(release);
+                return result;
+            });
+            Future<Object> follower = executor.submit(() -> flight.execute("key", () -> {
+                calls.incrementAndGet();
+                return new Object();
+            }));
+            awaitSharedCalls(flight, 1);
+            release.countDown();
+
+            assertSame(result, leader.get(5, TimeUnit.SECONDS));
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(1, flight.getExecutions());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void theLeadersExceptionReachesTheFollower() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("request failed");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = lead(executor, flight, "key", () -> {
+                awaitQuietly(release);
+                throw failure;
+            });
+            Future<Object> follower = executor.submit(() -> flight.execute("key", Object::new));
+            awaitSharedCalls(flight, 1);
+            release.countDown();
+
+            assertSame(failure, assertThrows(ExecutionException.class,
+                    () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+            assertSame(failure, assertThrows(ExecutionException.class,
+                    () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nothingIsKeptOnceTheCallCompletes() {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, flight.execute("key", calls::incrementAndGet));
+        assertEquals(2, flight.execute("key", calls::incrementAndGet));
+        assertThrows(IllegalStateException.class, () -> flight.execute("key", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(3, flight.execute("key", calls::incrementAndGet));
+        assertEquals(0, flight.getSharedCalls());
+    }
+
+    @Test
+    void differentKeysDoNotShare() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> leader = lead(executor, flight, "a", () -> {
+                awaitQuietly(release);
+                return "a";
+            });
+
+            assertEquals("b", flight.execute("b", () -> "b"));
+            release.countDown();
+            assertEquals("a", leader.get(5, TimeUnit.SECONDS));
+            assertEquals(0, flight.getSharedCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmdbIdentityMapTest {
+
+    @Test
+    void unknownIdsAreMissing() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+
+        assertEquals(TmdbIdentityMap.MISSING, map.getId(42));
+        assertFalse(map.isUnchanged(42, 1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void entriesSurviveResizing() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+        long initialBytes = map.getMemoryBytes();
+
+        // Far past the 3/4 load factor of the initial 1024 slots, with keys that collide after masking
+        for (int tmdbId = 1; tmdbId <= 50_000; tmdbId++) {
+            map.put(tmdbId * 1024, tmdbId, tmdbId * 31L);
+        }
+
+        assertEquals(50_000, map.size());
+        assertTrue(map.getMemoryBytes() > initialBytes);
+        for (int tmdbId = 1; tmdbId <= 50_000; tmdbId++) {
+            assertEquals(tmdbId, map.getId(tmdbId * 1024));
+            assertTrue(map.isUnchanged(tmdbId * 1024, tmdbId * 31L));
+        }
+        assertEquals(TmdbIdentityMap.MISSING, map.getId(1023));
+    }
+
+    @Test
+    void putOverwritesAnExistingEntry() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+        map.put(7, 100, 1L);
+        map.put(7, 200, 2L);
+
+        assertEquals(1, map.size());
+        assertEquals(200, map.getId(7));
+        assertFalse(map.isUnchanged(7, 1L));
+        assertTrue(map.isUnchanged(7, 2L));
+    }
+
+    @Test
+    void noHashNeverCountsAsUnchanged() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+        map.put(7, 100, TmdbIdentityMap.NO_HASH);
+
+        assertEquals(100, map.getId(7));
+        assertFalse(map.isUnchanged(7, TmdbIdentityMap.NO_HASH));
+        assertFalse(map.isUnchanged(7, 0L));
+    }
+
+    @Test
+    void tmdbIdsMustBePositive() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1, 1L));
+        assertThrows(IllegalArgumentException.class, () -> map.put(-5, 1, 1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void clearEmptiesTheMapAndMarksItCold() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+        for (int tmdbId = 1; tmdbId <= 5_000; tmdbId++) {
+            map.put(tmdbId, tmdbId, tmdbId);
+        }
+        map.setWarm(true);
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.isWarm());
+        assertEquals(TmdbIdentityMap.MISSING, map.getId(1));
+    }
+
+    @Test
+    void readersSeeConsistentEntriesWhileWritersResize() {
+        TmdbIdentityMap map = new TmdbIdentityMap("test");
+        int preloaded = 500;
+        for (int tmdbId = 1; tmdbId <= preloaded; tmdbId++) {
+            map.put(tmdbId, tmdbId * 2, tmdbId);
+        }
+
+        int written = 200_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> violation = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            int seed = r;
+            Thread reader = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int tmdbId = seed + 1;
+                while (writing.get() && violation.get() == null) {
+                    // Preloaded entries never go missing, not even in the middle of a resize
+                    int known = tmdbId % preloaded + 1;
+                    if (map.getId(known) != known * 2 || !map.isUnchanged(known, known)) {
+                        violation.set("preloaded " + known + " -> " + map.getId(known));
+                    }
+                    // Entries being written are either absent or complete
+                    int id = map.getId(tmdbId);
+                    if (id != TmdbIdentityMap.MISSING && id != tmdbId * 2) {
+                        violation.set(tmdbId + " -> " + id);
+                    }
+                    tmdbId = tmdbId % written + 1;
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            start.countDown();
+            for (int tmdbId = preloaded + 1; tmdbId <= written; tmdbId++) {
+                map.put(tmdbId, tmdbId * 2, tmdbId);
+            }
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        });
+
+        assertNull(violation.get());
+        assertEquals(written, map.size());
+        for (int tmdbId = 1; tmdbId <= written; tmdbId++) {
+            assertEquals(tmdbId * 2, map.getId(tmdbId));
+        }
+    }
+}